@@ -0,0 +1,24 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+// A cart that can compute its aggregates without handing out every item.
+public interface AggregatingCart extends ShoppingCart {
+    CartAggregates aggregates();
+
+    // The lines of one product, in cart order; at most one in MERGE mode. This default
+    // reads every line, carts that can find a product's lines directly override it.
+    default List<Item> linesOf(String name, ItemType type) {
+        List<Item> lines = new ArrayList<>();
+        for (Item item : getItems()) {
+            if (item.getType() == type && Objects.equals(item.getName(), name))
+                lines.add(item);
+        }
+        return lines;
+    }
+}
@@ -1,8 +1,16 @@
 package org.example.Amazon;
 
+import org.example.Amazon.Cost.AggregatePriceRule;
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
 import org.example.Amazon.Cost.PriceRule;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class Amazon {
 
@@ -16,14 +24,231 @@ public class Amazon {
 
     public double calculate() {
         double finalPrice = 0;
+        // every rule prices the same version of a cart that is being changed concurrently
+        ShoppingCart cart = current();
+        // fetched at most once, and only if some rule can use it
+        CartAggregates aggregates = null;
 
         for (PriceRule rule : rules) {
-            finalPrice += rule.priceToAggregate(carts.getItems());
+            PricingEvent event = new PricingEvent();
+            event.begin();
+            boolean fromAggregates = pricesFromAggregates(cart, rule);
+            int cartSize;
+            if (fromAggregates) {
+                if (aggregates == null)
+                    aggregates = ((AggregatingCart) cart).aggregates();
+                finalPrice += ((AggregatePriceRule) rule).priceFromAggregates(aggregates);
+                cartSize = aggregates.getLineCount();
+            } else {
+                List<Item> items = cart.getItems();
+                finalPrice += rule.priceToAggregate(items);
+                cartSize = items.size();
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.rule = rule.getClass();
+                event.cartSize = cartSize;
+                event.fromAggregates = fromAggregates;
+                event.commit();
+            }
         }
 
         return finalPrice;
     }
 
+    // What calculate() would return with the adding lines added to the cart and the
+    // removing lines taken out. The cart is not changed. With an AggregatingCart,
+    // rules that price from aggregates work on the cart's aggregates plus the
+    // difference, so no item is copied; other rules get a copy of the items with
+    // the changes applied. Changes follow the cart's LineMode, and removals only take
+    // out lines the cart has; an AggregatingCart looks up just the lines of the
+    // products involved, any other cart has its lines read once.
+    public double quoteWith(List<Item> adding, List<Item> removing) {
+        return new Quote(current()).price(adding, removing);
+    }
+
+    // quoteWith(List.of(candidate), List.of()) for every candidate, reading the cart only once
+    public double[] quoteAll(List<Item> candidates) {
+        Quote quote = new Quote(current());
+        double[] prices = new double[candidates.size()];
+        for (int i = 0; i < prices.length; i++)
+            prices[i] = quote.price(List.of(candidates.get(i)), List.of());
+        return prices;
+    }
+
+    private static boolean pricesFromAggregates(ShoppingCart cart, PriceRule rule) {
+        return cart instanceof AggregatingCart && rule instanceof AggregatePriceRule
+                && ((AggregatePriceRule) rule).canPriceFromAggregates();
+    }
+
+    private ShoppingCart current() {
+        return carts instanceof SnapshotCart ? ((SnapshotCart) carts).snapshot() : carts;
+    }
+
+    // one read of the cart, shared by every hypothetical change priced against it
+    private final class Quote {
+        private final ShoppingCart cart;
+        private CartAggregates aggregates;
+        private List<Item> items;
+
+        Quote(ShoppingCart cart) {
+            this.cart = cart;
+        }
+
+        double price(List<Item> adding, List<Item> removing) {
+            Changes changes = changes(adding, removing);
+            double price = 0;
+            CartAggregates adjusted = null;
+            for (PriceRule rule : rules) {
+                if (pricesFromAggregates(cart, rule)) {
+                    if (aggregates == null)
+                        aggregates = ((AggregatingCart) cart).aggregates();
+                    if (adjusted == null)
+                        adjusted = aggregates.adjust(changes.added, changes.removed);
+                    price += ((AggregatePriceRule) rule).priceFromAggregates(adjusted);
+                } else {
+                    if (changes.items == null)
+                        changes.items = changes.appendsOnly ? appended(items(), adding)
+                                : withChanges(items(), adding, removing, merge()).items;
+                    price += rule.priceToAggregate(changes.items);
+                }
+            }
+            return price;
+        }
+
+        // Appending to an APPEND cart is the only change that needs no look at the lines;
+        // merging and removing depend on which lines the cart has.
+        private Changes changes(List<Item> adding, List<Item> removing) {
+            boolean merge = merge();
+            if (removing.isEmpty() && (adding.isEmpty() || !merge))
+                return new Changes(null, adding, List.of(), true);
+            if (cart instanceof AggregatingCart)
+                return lineChanges((AggregatingCart) cart, adding, removing, merge);
+            return withChanges(items(), adding, removing, merge);
+        }
+
+        private boolean merge() {
+            return cart.getLineMode() == LineMode.MERGE;
+        }
+
+        private List<Item> items() {
+            if (items == null)
+                items = cart.getItems();
+            return items;
+        }
+    }
+
+    // The cart lines after a change, and the lines it brings in and takes out, worked
+    // out once so that the item and aggregate paths price the same cart.
+    private static final class Changes {
+        private List<Item> items;
+        private final List<Item> added;
+        private final List<Item> removed;
+        private final boolean appendsOnly;  // the items are the cart's lines plus the added ones
+
+        Changes(List<Item> items, List<Item> added, List<Item> removed, boolean appendsOnly) {
+            this.items = items;
+            this.added = added;
+            this.removed = removed;
+            this.appendsOnly = appendsOnly;
+        }
+    }
+
+    private static List<Item> appended(List<Item> items, List<Item> adding) {
+        List<Item> changed = new ArrayList<>(items);
+        changed.addAll(adding);
+        return changed;
+    }
+
+    // Applies the changes the way the cart would. With merge, an added product that already
+    // has a line raises that line's quantity at its own price, which counts as the old line
+    // going and the new one coming. A removed line takes out the first line with the same
+    // type, name, quantity and price; one that is not in the cart changes nothing.
+    private static Changes withChanges(List<Item> items, List<Item> adding, List<Item> removing, boolean merge) {
+        List<Item> changed = new ArrayList<>(items);
+        List<Item> added = new ArrayList<>();
+        List<Item> removed = new ArrayList<>();
+        for (Item item : adding) {
+            int index = merge ? indexOfProduct(changed, item) : -1;
+            if (index < 0) {
+                changed.add(item);
+                added.add(item);
+                continue;
+            }
+            Item line = changed.get(index);
+            Item merged = new Item(line.getType(), line.getName(), line.getQuantity() + item.getQuantity(), line.getPricePerUnit());
+            changed.set(index, merged);
+            removed.add(line);
+            added.add(merged);
+        }
+        for (Item item : removing) {
+            for (int i = 0; i < changed.size(); i++) {
+                Item line = changed.get(i);
+                if (line.getType() == item.getType() && Objects.equals(line.getName(), item.getName())
+                        && line.getQuantity() == item.getQuantity() && line.getPricePerUnit() == item.getPricePerUnit()) {
+                    changed.remove(i);
+                    removed.add(line);
+                    break;
+                }
+            }
+        }
+        return new Changes(changed, added, removed, false);
+    }
+
+    // The lines withChanges would bring in and take out, worked out from the lines of
+    // just the products involved, which the cart looks up one product at a time. The
+    // items are left to withChanges, for the rules that cannot price without them.
+    private static Changes lineChanges(AggregatingCart cart, List<Item> adding, List<Item> removing, boolean merge) {
+        Map<ItemType, Map<String, List<Item>>> products = new EnumMap<>(ItemType.class);
+        List<Item> added = new ArrayList<>();
+        List<Item> removed = new ArrayList<>();
+        for (Item item : adding) {
+            List<Item> lines = linesOf(products, cart, item.getName(), item.getType());
+            if (!merge || lines.isEmpty()) {
+                lines.add(item);
+                added.add(item);
+                continue;
+            }
+            Item line = lines.get(0);
+            Item merged = new Item(line.getType(), line.getName(), line.getQuantity() + item.getQuantity(), line.getPricePerUnit());
+            lines.set(0, merged);
+            removed.add(line);
+            added.add(merged);
+        }
+        for (Item item : removing) {
+            List<Item> lines = linesOf(products, cart, item.getName(), item.getType());
+            for (int i = 0; i < lines.size(); i++) {
+                Item line = lines.get(i);
+                if (line.getQuantity() == item.getQuantity() && line.getPricePerUnit() == item.getPricePerUnit()) {
+                    lines.remove(i);
+                    removed.add(line);
+                    break;
+                }
+            }
+        }
+        return new Changes(null, added, removed, false);
+    }
+
+    // a product's lines with the changes so far, looked up in the cart the first time
+    private static List<Item> linesOf(Map<ItemType, Map<String, List<Item>>> products, AggregatingCart cart, String name, ItemType type) {
+        Map<String, List<Item>> byName = products.computeIfAbsent(type, t -> new HashMap<>());
+        List<Item> lines = byName.get(name);
+        if (lines == null) {
+            lines = new ArrayList<>(cart.linesOf(name, type));
+            byName.put(name, lines);
+        }
+        return lines;
+    }
+
+    private static int indexOfProduct(List<Item> items, Item product) {
+        for (int i = 0; i < items.size(); i++) {
+            Item line = items.get(i);
+            if (line.getType() == product.getType() && Objects.equals(line.getName(), product.getName()))
+                return i;
+        }
+        return -1;
+    }
+
     public void addToCart(Item item){
         carts.add(item);
     }
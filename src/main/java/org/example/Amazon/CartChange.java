@@ -0,0 +1,80 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+// One change to a cart as published by a CartChangePublisher. Sequence numbers
+// start at 1 and grow by one per change of the feed, so a subscriber can tell
+// from a gap that changes were dropped.
+public class CartChange {
+
+    public enum Kind {
+        // a line was added; type, name, quantity and price are the item's
+        ADD,
+        // the lines of the product with this name and type were removed
+        REMOVE,
+        // the lines of the product were set to this quantity; zero or less removed them
+        UPDATE,
+        // every line of the cart was removed
+        CLEAR
+    }
+
+    private final long sequence;
+    private final Kind kind;
+    private final String cartId;
+    private final ItemType type;
+    private final String name;
+    private final int quantity;
+    private final double pricePerUnit;
+
+    CartChange(long sequence, Kind kind, String cartId, ItemType type, String name, int quantity, double pricePerUnit) {
+        this.sequence = sequence;
+        this.kind = kind;
+        this.cartId = cartId;
+        this.type = type;
+        this.name = name;
+        this.quantity = quantity;
+        this.pricePerUnit = pricePerUnit;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getCartId() {
+        return cartId;
+    }
+
+    // null for CLEAR
+    public ItemType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    // only set for ADD
+    public double getPricePerUnit() {
+        return pricePerUnit;
+    }
+
+    // the added line; only for ADD
+    public Item toItem() {
+        if (kind != Kind.ADD)
+            throw new IllegalStateException("Only an ADD change carries an item: " + kind);
+        return new Item(type, name, quantity, pricePerUnit);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + kind + " " + cartId + (type == null ? "" : " " + type + " " + name + " x" + quantity);
+    }
+}
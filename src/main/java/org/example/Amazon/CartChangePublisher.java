@@ -0,0 +1,316 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Feed of cart changes for consumers that keep their own state up to date
+ * instead of polling {@link ShoppingCart#getItems()}. Carts publish into it
+ * through {@link ObservableShoppingCart}; one feed can serve many carts.
+ *
+ * <p>Every subscriber has its own buffer of at most {@code bufferSize} changes
+ * and is called on the executor, one change at a time and only as far as it
+ * has requested. When a buffer is full the {@link OverflowPolicy} decides
+ * whether the change is dropped for that subscriber or whether the publishing
+ * cart call waits. A subscriber only sees the changes published after it
+ * subscribed, so it should load the cart once, through
+ * {@link ObservableShoppingCart#state()}, and apply the changes numbered after
+ * that state. Subscribers must not change a cart of the same feed from
+ * {@code onNext} when the policy is BLOCK, since that can wait for itself.
+ *
+ * <p>A change gets its sequence number under the feed's lock, but it is
+ * handed to the subscribers after the lock is let go, each subscriber taking
+ * the changes strictly in sequence order. A writer waiting for room
+ * therefore only holds up the changes that come after it for that
+ * subscriber, and {@link #close()} never waits for it: closing wakes blocked
+ * writers, and the changes they were holding are counted as dropped.
+ */
+public class CartChangePublisher implements Flow.Publisher<CartChange>, AutoCloseable {
+
+    private final Executor executor;
+    private final int bufferSize;
+    private final OverflowPolicy policy;
+    private final List<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final LongAdder dropped = new LongAdder();
+
+    private long sequence;
+    private volatile boolean closed;
+
+    public CartChangePublisher(Executor executor, int bufferSize, OverflowPolicy policy) {
+        if (bufferSize < 1)
+            throw new IllegalArgumentException("Buffer size must be positive: " + bufferSize);
+        this.executor = executor;
+        this.bufferSize = bufferSize;
+        this.policy = policy;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super CartChange> subscriber) {
+        if (subscriber == null)
+            throw new NullPointerException("subscriber");
+        ChangeSubscription subscription;
+        // under the lock so the subscription starts exactly after the last numbered change
+        synchronized (this) {
+            subscription = new ChangeSubscription(subscriber, sequence + 1);
+            subscriptions.add(subscription);
+        }
+        // close() may have missed a subscription added while it ran
+        if (closed)
+            subscription.complete();
+        subscription.signal();
+    }
+
+    // The sequence number and the subscribers it goes to are taken under the lock; the change is
+    // offered outside it. Every subscription in the snapshot must see the number, even if an
+    // offer fails, or the changes after it would wait for it forever.
+    void publish(CartChange.Kind kind, String cartId, ItemType type, String name, int quantity, double pricePerUnit) {
+        CartChange change;
+        Iterator<ChangeSubscription> to;
+        synchronized (this) {
+            if (closed)
+                return;
+            change = new CartChange(++sequence, kind, cartId, type, name, quantity, pricePerUnit);
+            // a copy-on-write iterator is a snapshot of the subscribers at this point
+            to = subscriptions.iterator();
+        }
+        RuntimeException failure = null;
+        while (to.hasNext()) {
+            try {
+                to.next().offer(change);
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    // the sequence number of the last published change, 0 if there was none
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // changes dropped for any subscriber because its buffer was full or the feed closed first
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Stops publishing. Subscribers get what is still buffered and then onComplete;
+    // writers still waiting for room are let go.
+    @Override
+    public void close() {
+        closed = true;
+        // no change is numbered after this, and publish only holds the lock to number one
+        synchronized (this) {
+            for (ChangeSubscription subscription : subscriptions)
+                subscription.complete();
+        }
+    }
+
+    private final class ChangeSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super CartChange> subscriber;
+        private final ArrayDeque<CartChange> buffer = new ArrayDeque<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        // signalled when the buffer shrinks, the turn moves on or the subscription ends
+        private final Condition progress = lock.newCondition();
+        // number of signals since the drain loop last looked; only the caller that raises it from 0 runs the loop
+        private final AtomicInteger work = new AtomicInteger();
+
+        // sequence number of the change this subscription takes next
+        private long turn;
+        private long demand;
+        private boolean completed;
+        private boolean cancelled;
+        private IllegalArgumentException badRequest;
+        // only touched by the drain loop
+        private boolean subscribed;
+
+        ChangeSubscription(Flow.Subscriber<? super CartChange> subscriber, long firstSequence) {
+            this.subscriber = subscriber;
+            this.turn = firstSequence;
+        }
+
+        void offer(CartChange change) {
+            lock.lock();
+            try {
+                // the changes numbered before this one are offered first; each of them ends its turn
+                // without waiting for anything but room, which cancel and complete also end
+                while (change.getSequence() != turn && !cancelled && !completed)
+                    progress.awaitUninterruptibly();
+                if (cancelled)
+                    return;
+                if (completed) {
+                    // numbered before close() but not buffered in time
+                    dropped.increment();
+                    return;
+                }
+                try {
+                    if (!makeRoom())
+                        return;
+                    buffer.add(change);
+                } finally {
+                    turn++;
+                    progress.signalAll();
+                }
+            } finally {
+                lock.unlock();
+            }
+            signal();
+        }
+
+        // returns false when the change is dropped instead
+        private boolean makeRoom() {
+            if (buffer.size() < bufferSize)
+                return true;
+            switch (policy) {
+                case DROP_NEWEST:
+                    dropped.increment();
+                    return false;
+                case DROP_OLDEST:
+                    buffer.poll();
+                    dropped.increment();
+                    return true;
+                default:
+                    while (buffer.size() == bufferSize && !cancelled && !completed) {
+                        try {
+                            progress.await();
+                        } catch (InterruptedException e) {
+                            // the cart has already changed; the subscriber sees a gap instead
+                            Thread.currentThread().interrupt();
+                            dropped.increment();
+                            return false;
+                        }
+                    }
+                    if (cancelled)
+                        return false;
+                    if (completed) {
+                        dropped.increment();
+                        return false;
+                    }
+                    return true;
+            }
+        }
+
+        void complete() {
+            lock.lock();
+            try {
+                completed = true;
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            signal();
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (n <= 0)
+                    badRequest = new IllegalArgumentException("Non-positive request: " + n);
+                else
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            } finally {
+                lock.unlock();
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                buffer.clear();
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (work.getAndIncrement() == 0)
+                executor.execute(this);
+        }
+
+        // delivers changes while there is demand; runs on one executor thread at a time
+        @Override
+        public void run() {
+            int missed = 1;
+            while (true) {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                if (!drain())
+                    return;
+                missed = work.addAndGet(-missed);
+                if (missed == 0)
+                    return;
+            }
+        }
+
+        // returns false once the subscriber has been terminated
+        private boolean drain() {
+            while (true) {
+                CartChange next;
+                Throwable error = null;
+                boolean done = false;
+                lock.lock();
+                try {
+                    if (cancelled)
+                        return false;
+                    if (badRequest != null) {
+                        error = badRequest;
+                        next = null;
+                    } else if (buffer.isEmpty()) {
+                        if (!completed)
+                            return true;
+                        done = true;
+                        next = null;
+                    } else if (demand == 0) {
+                        return true;
+                    } else {
+                        next = buffer.poll();
+                        demand--;
+                        progress.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (error != null || done) {
+                    cancel();
+                    if (error != null)
+                        subscriber.onError(error);
+                    else
+                        subscriber.onComplete();
+                    return false;
+                }
+                try {
+                    subscriber.onNext(next);
+                } catch (Throwable t) {
+                    cancel();
+                    subscriber.onError(t);
+                    return false;
+                }
+            }
+        }
+    }
+}
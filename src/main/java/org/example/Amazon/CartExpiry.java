@@ -0,0 +1,239 @@
+package org.example.Amazon;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Expires abandoned carts with a hashed timing wheel.
+ *
+ * <p>Every cart has one timer node that sits in the wheel slot of its deadline,
+ * so scheduling, touching and cancelling are O(1) and no cart gets a thread or
+ * a ScheduledFuture of its own. One ticker thread (or the caller, through
+ * {@link #advance()}) walks the slots as time passes and hands expired cart ids
+ * to the reaper in batches, e.g. {@code ids -> ShoppingCartAdaptor.deleteCarts(database, ids)}.
+ *
+ * <p>The batch is picked under the lock and reaped outside it, so other carts can
+ * be touched while it is deleted. A touch of a cart in the batch waits until the
+ * batch is reaped and then starts the cart afresh; a cart touched after its
+ * deadline is therefore either reaped before the touch gets through or not reaped
+ * at all. A ShoppingCartAdaptor given this expiry touches its cart before every
+ * call, so a write never lands in a cart that is being deleted.
+ */
+public class CartExpiry implements AutoCloseable {
+
+    private final long tickNanos;
+    private final Timer[] wheel;
+    private final Duration idleTimeout;
+    private final int batchSize;
+    private final Consumer<List<String>> reaper;
+    private final LongSupplier clock;
+    private final Map<String, Timer> timers = new HashMap<>();
+    // carts in a batch the reaper has not finished with
+    private final Set<String> reaping = new HashSet<>();
+    private final long startNanos;
+
+    private long currentTick;
+    private long expiredTotal;
+    private long windowStartNanos;
+    private long windowExpired;
+    private double expirationsPerSecond;
+    private Thread ticker;
+
+    private static final class Timer {
+        final String cartId;
+        long deadlineTick;
+        int slot = -1;
+        Timer previous;
+        Timer next;
+
+        Timer(String cartId) {
+            this.cartId = cartId;
+        }
+    }
+
+    public CartExpiry(Duration tick, int wheelSize, Duration idleTimeout, int batchSize, Consumer<List<String>> reaper) {
+        this(tick, wheelSize, idleTimeout, batchSize, reaper, System::nanoTime);
+    }
+
+    public CartExpiry(Duration tick, int wheelSize, Duration idleTimeout, int batchSize,
+                      Consumer<List<String>> reaper, LongSupplier clock) {
+        this.tickNanos = tick.toNanos();
+        this.wheel = new Timer[wheelSize];
+        this.idleTimeout = idleTimeout;
+        this.batchSize = batchSize;
+        this.reaper = reaper;
+        this.clock = clock;
+        this.startNanos = clock.getAsLong();
+        this.windowStartNanos = startNanos;
+    }
+
+    // Expires the cart after the idle timeout unless it is touched again.
+    public void touch(String cartId) {
+        schedule(cartId, idleTimeout);
+    }
+
+    // Expires the cart after the given time, replacing any earlier deadline.
+    public synchronized void schedule(String cartId, Duration ttl) {
+        awaitReaped(cartId);
+        Timer timer = timers.computeIfAbsent(cartId, Timer::new);
+        unlink(timer);
+        long ticks = Math.max(1, (ttl.toNanos() + tickNanos - 1) / tickNanos);
+        timer.deadlineTick = tickAt(clock.getAsLong()) + ticks;
+        link(timer);
+    }
+
+    // Forgets the cart, e.g. after checkout.
+    public synchronized void cancel(String cartId) {
+        Timer timer = timers.remove(cartId);
+        if (timer != null)
+            unlink(timer);
+    }
+
+    // Processes every tick up to now and reaps what expired. Returns the number of carts expired.
+    // Only touches of the carts in a batch wait while it is reaped.
+    public int advance() {
+        int expired = 0;
+        while (true) {
+            List<String> batch;
+            synchronized (this) {
+                long now = clock.getAsLong();
+                if (currentTick >= tickAt(now)) {
+                    updateRate(now);
+                    return expired;
+                }
+                batch = new ArrayList<>(batchSize);
+                // take whole ticks until the batch is full
+                while (currentTick < tickAt(now) && batch.size() < batchSize) {
+                    if (!expireSlot(currentTick + 1, batch))
+                        currentTick++;
+                }
+                expired += batch.size();
+                reaping.addAll(batch);
+            }
+            if (batch.isEmpty())
+                continue;
+            try {
+                reaper.accept(batch);
+            } finally {
+                synchronized (this) {
+                    for (String cartId : batch)
+                        reaping.remove(cartId);
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    // Starts a daemon thread that calls advance() every tick.
+    public synchronized void start() {
+        ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                advance();
+                try {
+                    Thread.sleep(Math.max(1, tickNanos / 1_000_000));
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "cart-expiry");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null)
+            ticker.interrupt();
+    }
+
+    public synchronized int liveCarts() {
+        return timers.size();
+    }
+
+    public synchronized long expiredTotal() {
+        return expiredTotal;
+    }
+
+    // expirations per second over the last completed window of at least one second
+    public synchronized double expirationsPerSecond() {
+        return expirationsPerSecond;
+    }
+
+    // called holding the lock; lets the reaper delete the cart before it is scheduled again
+    private void awaitReaped(String cartId) {
+        boolean interrupted = false;
+        while (reaping.contains(cartId)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+    }
+
+    // Expires the due timers of one tick into the batch. Returns true if it stopped
+    // because the batch is full and the slot still has due timers left.
+    private boolean expireSlot(long tick, List<String> batch) {
+        Timer timer = wheel[(int) (tick % wheel.length)];
+        while (timer != null) {
+            Timer next = timer.next;
+            if (timer.deadlineTick <= tick) {
+                if (batch.size() == batchSize)
+                    return true;
+                unlink(timer);
+                timers.remove(timer.cartId);
+                batch.add(timer.cartId);
+                expiredTotal++;
+                windowExpired++;
+            }
+            timer = next;
+        }
+        return false;
+    }
+
+    private void updateRate(long now) {
+        long elapsed = now - windowStartNanos;
+        if (elapsed >= 1_000_000_000L) {
+            expirationsPerSecond = windowExpired * 1e9 / elapsed;
+            windowStartNanos = now;
+            windowExpired = 0;
+        }
+    }
+
+    private long tickAt(long nanos) {
+        return (nanos - startNanos) / tickNanos;
+    }
+
+    private void link(Timer timer) {
+        int slot = (int) (timer.deadlineTick % wheel.length);
+        timer.slot = slot;
+        timer.previous = null;
+        timer.next = wheel[slot];
+        if (wheel[slot] != null)
+            wheel[slot].previous = timer;
+        wheel[slot] = timer;
+    }
+
+    private void unlink(Timer timer) {
+        if (timer.slot < 0)
+            return;
+        if (timer.previous != null)
+            timer.previous.next = timer.next;
+        else
+            wheel[timer.slot] = timer.next;
+        if (timer.next != null)
+            timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+        timer.slot = -1;
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves the contents of the shoppingcart table to a file and loads it back.
+ *
+ * <p>The file is a 13 byte header (magic, version, row count) followed by one
+ * record per row:
+ * <pre>
+ * short  cart id length in bytes
+ * byte[] cart id, UTF-8
+ * byte   type ordinal
+ * short  name length in bytes, -1 for null
+ * byte[] name, UTF-8
+ * int    quantity
+ * double price per unit
+ * byte   1 for a merged line, 0 for an appended one
+ * </pre>
+ * Version 1 files, written before carts had ids, have neither the cart id
+ * nor the last byte; their rows are restored into the default cart. Version 2
+ * files have no last byte; their rows are restored as appended lines.
+ */
+public class CartSnapshot {
+
+    private static final int MAGIC = 0x43415254;  // "CART"
+    private static final byte VERSION = 3;
+    private static final int HEADER_SIZE = 4 + 1 + 8;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BATCH_SIZE = 10_000;
+
+    private CartSnapshot() {
+    }
+
+    // Writes every row of the shoppingcart table to the file and returns the row count.
+    public static long export(Database database, Path file) {
+        return database.withSql(() -> {
+            try (var ps = database.getConnection().prepareStatement("select cartid, type, name, quantity, priceperunit, linekey from shoppingcart");
+                 var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                ps.setFetchSize(BATCH_SIZE);
+                final var rs = ps.executeQuery();
+
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                buffer.putInt(MAGIC).put(VERSION).putLong(0);
+
+                long rows = 0;
+                while (rs.next()) {
+                    byte[] cartId = rs.getString("cartid").getBytes(StandardCharsets.UTF_8);
+                    String name = rs.getString("name");
+                    byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+                    int recordSize = 2 + cartId.length + 1 + 2 + (nameBytes == null ? 0 : nameBytes.length) + 4 + 8 + 1;
+                    if (buffer.remaining() < recordSize)
+                        flush(channel, buffer);
+
+                    buffer.putShort((short) cartId.length);
+                    buffer.put(cartId);
+                    buffer.put((byte) ItemType.valueOf(rs.getString("type")).ordinal());
+                    if (nameBytes == null) {
+                        buffer.putShort((short) -1);
+                    } else {
+                        buffer.putShort((short) nameBytes.length);
+                        buffer.put(nameBytes);
+                    }
+                    buffer.putInt(rs.getInt("quantity"));
+                    buffer.putDouble(rs.getDouble("priceperunit"));
+                    buffer.put((byte) (rs.getString("linekey") == null ? 0 : 1));
+                    rows++;
+                }
+                flush(channel, buffer);
+
+                // now that the row count is known, fill it into the header
+                buffer.putLong(rows).flip();
+                channel.write(buffer, 5);
+                return rows;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // Inserts every row of the file into the shoppingcart table and returns the row count.
+    // Rows are added to whatever is already in the table; a merged line whose product the
+    // cart already has as a merged line fails the restore, which then adds nothing.
+    public static long restore(Database database, Path file) {
+        return database.withSql(() -> {
+            var connection = database.getConnection();
+            boolean autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            try (var ps = connection.prepareStatement("insert into shoppingcart (cartid, name, type, quantity, priceperunit, linekey) values (?,?,?,?,?,?)");
+                 var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+                buffer.flip();
+
+                fill(channel, buffer, HEADER_SIZE);
+                if (buffer.getInt() != MAGIC)
+                    throw new IOException("Not a cart snapshot: " + file);
+                byte version = buffer.get();
+                if (version < 1 || version > VERSION)
+                    throw new IOException("Unsupported cart snapshot version " + version + " (this build reads 1 to "
+                            + VERSION + "): " + file);
+                long rows = buffer.getLong();
+
+                ItemType[] types = ItemType.values();
+                byte[] nameBytes = new byte[Short.MAX_VALUE];
+                for (long row = 0; row < rows; row++) {
+                    String cartId = ShoppingCartAdaptor.DEFAULT_CART;
+                    if (version >= 2) {
+                        fill(channel, buffer, 2);
+                        short cartIdLength = buffer.getShort();
+                        fill(channel, buffer, cartIdLength);
+                        buffer.get(nameBytes, 0, cartIdLength);
+                        cartId = new String(nameBytes, 0, cartIdLength, StandardCharsets.UTF_8);
+                    }
+
+                    fill(channel, buffer, 1 + 2);
+                    byte ordinal = buffer.get();
+                    if (ordinal < 0 || ordinal >= types.length)
+                        throw new IOException("Corrupt cart snapshot, unknown item type " + ordinal + " in row " + row);
+                    ItemType type = types[ordinal];
+                    short nameLength = buffer.getShort();
+
+                    fill(channel, buffer, Math.max(nameLength, 0) + 4 + 8 + (version >= 3 ? 1 : 0));
+                    String name = null;
+                    if (nameLength >= 0) {
+                        buffer.get(nameBytes, 0, nameLength);
+                        name = new String(nameBytes, 0, nameLength, StandardCharsets.UTF_8);
+                    }
+
+                    ps.setString(1, cartId);
+                    ps.setString(2, name);
+                    ps.setString(3, type.name());
+                    ps.setInt(4, buffer.getInt());
+                    ps.setDouble(5, buffer.getDouble());
+                    boolean merged = version >= 3 && buffer.get() != 0;
+                    ps.setString(6, merged ? ShoppingCartAdaptor.lineKey(name, type) : null);
+                    ps.addBatch();
+                    if ((row + 1) % BATCH_SIZE == 0)
+                        ps.executeBatch();
+                }
+                // hsqldb refuses to execute an empty batch
+                if (rows % BATCH_SIZE != 0)
+                    ps.executeBatch();
+                connection.commit();
+                return rows;
+            } catch (IOException e) {
+                connection.rollback();
+                throw new UncheckedIOException(e);
+            } catch (Throwable t) {
+                // setAutoCommit(true) below would commit the rows inserted so far
+                connection.rollback();
+                throw t;
+            } finally {
+                connection.setAutoCommit(autoCommit);
+            }
+        });
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    // makes sure at least n unread bytes are in the buffer, which is kept in read mode
+    private static void fill(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() >= n)
+            return;
+
+        buffer.compact();
+        while (buffer.position() < n) {
+            if (channel.read(buffer) < 0)
+                throw new IOException("Truncated cart snapshot");
+        }
+        buffer.flip();
+    }
+}
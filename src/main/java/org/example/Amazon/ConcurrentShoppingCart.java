@@ -0,0 +1,166 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Thread-safe in-memory shopping cart.
+ *
+ * <p>The cart is a chain of immutable versions, each holding one line, a link to
+ * the previous version and the aggregates of all lines up to it. Adding a line
+ * is a single compare-and-set of the head, so writers never take a lock, and a
+ * reader that grabs the head has a consistent cart that later writes cannot
+ * change. Removals and updates rebuild the chain, so they cost O(lines).
+ * Lines are always appended; there is no merge mode.
+ */
+public class ConcurrentShoppingCart implements SnapshotCart {
+
+    private final AtomicReference<Version> head = new AtomicReference<>(Version.EMPTY);
+
+    @Override
+    public void add(Item item) {
+        Version current;
+        do {
+            current = head.get();
+        } while (!head.compareAndSet(current, current.append(item)));
+    }
+
+    @Override
+    public void remove(String name, ItemType type) {
+        Version current;
+        Version next;
+        do {
+            current = head.get();
+            next = Version.EMPTY;
+            for (Item item : current.items()) {
+                if (!isLine(item, name, type))
+                    next = next.append(item);
+            }
+        } while (!head.compareAndSet(current, next));
+    }
+
+    @Override
+    public void updateQuantity(String name, ItemType type, int quantity) {
+        if (quantity <= 0) {
+            remove(name, type);
+            return;
+        }
+        Version current;
+        Version next;
+        do {
+            current = head.get();
+            next = Version.EMPTY;
+            for (Item item : current.items()) {
+                next = next.append(isLine(item, name, type)
+                        ? new Item(item.getType(), item.getName(), quantity, item.getPricePerUnit())
+                        : item);
+            }
+        } while (!head.compareAndSet(current, next));
+    }
+
+    @Override
+    public void clear() {
+        head.set(Version.EMPTY);
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return head.get().getItems();
+    }
+
+    @Override
+    public int numberOfItems() {
+        return head.get().numberOfItems();
+    }
+
+    @Override
+    public CartAggregates aggregates() {
+        return head.get().aggregates();
+    }
+
+    @Override
+    public AggregatingCart snapshot() {
+        return head.get();
+    }
+
+    private static boolean isLine(Item item, String name, ItemType type) {
+        return item.getType() == type && Objects.equals(item.getName(), name);
+    }
+
+    private static final class Version implements AggregatingCart {
+
+        static final Version EMPTY = new Version(null, null, 0, 0, 0);
+
+        private final Item item;
+        private final Version previous;
+        private final int lineCount;
+        private final double subtotal;
+        private final int electronicLines;
+
+        private Version(Item item, Version previous, int lineCount, double subtotal, int electronicLines) {
+            this.item = item;
+            this.previous = previous;
+            this.lineCount = lineCount;
+            this.subtotal = subtotal;
+            this.electronicLines = electronicLines;
+        }
+
+        Version append(Item item) {
+            // summed in insertion order, the same order RegularCost uses
+            return new Version(item, this, lineCount + 1,
+                    subtotal + item.getPricePerUnit() * item.getQuantity(),
+                    electronicLines + (item.getType() == ItemType.ELECTRONIC ? 1 : 0));
+        }
+
+        Item[] items() {
+            Item[] items = new Item[lineCount];
+            Version version = this;
+            for (int i = lineCount - 1; i >= 0; i--) {
+                items[i] = version.item;
+                version = version.previous;
+            }
+            return items;
+        }
+
+        @Override
+        public List<Item> getItems() {
+            return new ArrayList<>(Arrays.asList(items()));
+        }
+
+        @Override
+        public int numberOfItems() {
+            return lineCount;
+        }
+
+        @Override
+        public CartAggregates aggregates() {
+            return new CartAggregates(subtotal, lineCount, electronicLines);
+        }
+
+        @Override
+        public void add(Item item) {
+            throw new UnsupportedOperationException("Cart snapshots are read-only");
+        }
+
+        @Override
+        public void remove(String name, ItemType type) {
+            throw new UnsupportedOperationException("Cart snapshots are read-only");
+        }
+
+        @Override
+        public void updateQuantity(String name, ItemType type, int quantity) {
+            throw new UnsupportedOperationException("Cart snapshots are read-only");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Cart snapshots are read-only");
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.example.Amazon.Cost;
+
+// A rule that can also price a cart from its CartAggregates, so an AggregatingCart
+// does not have to hand out its items for it.
+public interface AggregatePriceRule extends PriceRule {
+
+    // Same price as priceToAggregate, computed from the cart's aggregates only.
+    double priceFromAggregates(CartAggregates aggregates);
+
+    // false when this instance has to see the items after all
+    default boolean canPriceFromAggregates() {
+        return true;
+    }
+}
@@ -0,0 +1,68 @@
+package org.example.Amazon.Cost;
+
+import org.example.Amazon.Item;
+
+import java.util.List;
+
+// The cart-wide values an AggregatePriceRule prices from: subtotal, line count and electronic lines.
+public class CartAggregates {
+
+    public static final CartAggregates EMPTY = new CartAggregates(0, 0, 0);
+
+    private final double subtotal;
+    private final int lineCount;
+    private final int electronicLines;
+
+    public CartAggregates(double subtotal, int lineCount, int electronicLines) {
+        this.subtotal = subtotal;
+        this.lineCount = lineCount;
+        this.electronicLines = electronicLines;
+    }
+
+    public static CartAggregates of(List<Item> cart) {
+        double subtotal = 0;
+        int electronicLines = 0;
+        for (Item item : cart) {
+            subtotal += item.getPricePerUnit() * item.getQuantity();
+            if (item.getType() == ItemType.ELECTRONIC)
+                electronicLines++;
+        }
+        return new CartAggregates(subtotal, cart.size(), electronicLines);
+    }
+
+    // The aggregates of this cart with the adding lines added and the removing lines
+    // taken out. Every added item counts as a new line and every removed one must be
+    // a line of the cart; Amazon works out which lines those are for the cart's LineMode.
+    public CartAggregates adjust(List<Item> adding, List<Item> removing) {
+        double subtotal = this.subtotal;
+        int lineCount = this.lineCount + adding.size() - removing.size();
+        int electronicLines = this.electronicLines;
+        for (Item item : adding) {
+            subtotal += item.getPricePerUnit() * item.getQuantity();
+            if (item.getType() == ItemType.ELECTRONIC)
+                electronicLines++;
+        }
+        for (Item item : removing) {
+            subtotal -= item.getPricePerUnit() * item.getQuantity();
+            if (item.getType() == ItemType.ELECTRONIC)
+                electronicLines--;
+        }
+        return new CartAggregates(subtotal, lineCount, electronicLines);
+    }
+
+    public double getSubtotal() {
+        return subtotal;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public int getElectronicLines() {
+        return electronicLines;
+    }
+
+    public boolean hasElectronic() {
+        return electronicLines > 0;
+    }
+}
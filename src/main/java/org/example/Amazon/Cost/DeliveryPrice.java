@@ -4,12 +4,18 @@ import org.example.Amazon.Item;
 
 import java.util.List;
 
-public class DeliveryPrice implements PriceRule {
+public class DeliveryPrice implements AggregatePriceRule {
     @Override
     public double priceToAggregate(List<Item> cart) {
+        return priceFor(cart.size());
+    }
 
-        int totalItems = cart.size();
+    @Override
+    public double priceFromAggregates(CartAggregates aggregates) {
+        return priceFor(aggregates.getLineCount());
+    }
 
+    private static double priceFor(int totalItems) {
         if(totalItems == 0)
             return 0;
         if(totalItems >= 1 && totalItems <= 3)
@@ -4,11 +4,20 @@ import org.example.Amazon.Item;
 
 import java.util.List;
 
-public class ExtraCostForElectronics implements PriceRule {
+public class ExtraCostForElectronics implements AggregatePriceRule {
     @Override
     public double priceToAggregate(List<Item> cart) {
         boolean hasAnElectronicDevice = cart.stream().anyMatch(it -> it.getType() == ItemType.ELECTRONIC);
 
+        return priceFor(hasAnElectronicDevice);
+    }
+
+    @Override
+    public double priceFromAggregates(CartAggregates aggregates) {
+        return priceFor(aggregates.hasElectronic());
+    }
+
+    private static double priceFor(boolean hasAnElectronicDevice) {
         if(hasAnElectronicDevice)
             return 7.50;
 
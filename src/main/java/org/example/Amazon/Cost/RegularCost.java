@@ -2,11 +2,42 @@ package org.example.Amazon.Cost;
 
 import org.example.Amazon.Item;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+public class RegularCost implements AggregatePriceRule {
+
+    // lines summed by one leaf of the fork/join tree
+    static final int LEAF_SIZE = 4_096;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    public RegularCost() {
+        this(null, Integer.MAX_VALUE);
+    }
+
+    // Fork/join mode for very large carts. The cart is cut into leaves of LEAF_SIZE
+    // lines, each leaf uses compensated summation, and leaves are combined in a tree
+    // whose shape depends only on the cart size. The total is therefore the same to
+    // the last bit for any pool size and for any threshold; parallelThreshold only
+    // decides from which cart size the tree is evaluated in the pool.
+    public RegularCost(ForkJoinPool pool, int parallelThreshold) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
 
-public class RegularCost implements PriceRule {
     @Override
     public double priceToAggregate(List<Item> cart) {
+        if (pool != null) {
+            if (!(cart instanceof RandomAccess))
+                cart = new ArrayList<>(cart);
+            Subtotal subtotal = new Subtotal(cart, 0, cart.size());
+            return (cart.size() >= parallelThreshold ? pool.invoke(subtotal) : subtotal.compute()).value();
+        }
 
         double price = 0;
         for (Item item : cart) {
@@ -15,4 +46,85 @@ public class RegularCost implements PriceRule {
 
         return price;
     }
+
+    // A cart's cached subtotal is rounded in the order its lines changed, so in
+    // fork/join mode the rule asks for the items instead to keep its result reproducible.
+    @Override
+    public boolean canPriceFromAggregates() {
+        return pool == null;
+    }
+
+    @Override
+    public double priceFromAggregates(CartAggregates aggregates) {
+        return aggregates.getSubtotal();
+    }
+
+    // a sum with its running error, as in Neumaier's variant of Kahan summation
+    static final class Compensated {
+        final double sum;
+        final double error;
+
+        Compensated(double sum, double error) {
+            this.sum = sum;
+            this.error = error;
+        }
+
+        Compensated plus(Compensated other) {
+            double total = sum + other.sum;
+            return new Compensated(total, error + other.error + lost(sum, other.sum, total));
+        }
+
+        double value() {
+            return sum + error;
+        }
+    }
+
+    // the low-order part of a + b that did not fit into total
+    private static double lost(double a, double b, double total) {
+        return Math.abs(a) >= Math.abs(b) ? (a - total) + b : (b - total) + a;
+    }
+
+    private static final class Subtotal extends RecursiveTask<Compensated> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Item> cart;
+        private final int from;
+        private final int to;
+
+        Subtotal(List<Item> cart, int from, int to) {
+            this.cart = cart;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Compensated compute() {
+            int leaves = (to - from + LEAF_SIZE - 1) / LEAF_SIZE;
+            if (leaves <= 1)
+                return leaf();
+
+            // split on a leaf boundary so the tree only depends on the cart size
+            int middle = from + (leaves / 2) * LEAF_SIZE;
+            Subtotal left = new Subtotal(cart, from, middle);
+            Subtotal right = new Subtotal(cart, middle, to);
+            if (getPool() == null)
+                return left.compute().plus(right.compute());
+            left.fork();
+            Compensated rightSum = right.compute();
+            return left.join().plus(rightSum);
+        }
+
+        private Compensated leaf() {
+            double sum = 0;
+            double error = 0;
+            for (int i = from; i < to; i++) {
+                Item item = cart.get(i);
+                double price = item.getPricePerUnit() * item.getQuantity();
+                double total = sum + price;
+                error += lost(sum, price, total);
+                sum = total;
+            }
+            return new Compensated(sum, error);
+        }
+    }
 }
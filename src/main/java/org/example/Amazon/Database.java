@@ -1,8 +1,9 @@
 package org.example.Amazon;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This is a very naive database connection class.
@@ -11,29 +12,41 @@ import java.sql.SQLException;
  */
 public class Database {
 
-    private static Connection connection;
+    // one open connection per provider, shared by every Database on that provider
+    private static final Map<PersistenceProvider, Connection> connections = new ConcurrentHashMap<>();
+    private static volatile PersistenceProvider defaultProvider = PersistenceProvider.fromSystemProperties();
+
+    private final PersistenceProvider provider;
 
     public Database() {
-        if(connection !=null) return;
+        this(defaultProvider);
+    }
 
-        withSql(() -> {
-            connection = DriverManager.getConnection("jdbc:hsqldb:mem:mymemdb.db", "SA", "");
-            try (var preparedStatement = connection.prepareStatement("create table if not exists shoppingcart (type varchar(100), name varchar(100), " +
-                    " quantity int, priceperunit double)")) {
-                preparedStatement.execute();
-                connection.commit();
-            }
-            return null;
-        });
+    // Nothing is opened here; the connection and the schema are set up by the
+    // first getConnection(), so creating a Database costs nothing at startup.
+    public Database(PersistenceProvider provider) {
+        this.provider = provider;
+    }
+
+    // Changes the provider used by new Database(). Meant to be called once at startup.
+    public static void setDefaultProvider(PersistenceProvider provider) {
+        defaultProvider = provider;
+    }
+
+    public PersistenceProvider getProvider() {
+        return provider;
     }
 
     public Connection getConnection() {
-        return connection;
+        Connection connection = connections.get(provider);
+        if (connection != null)
+            return connection;
+        return withSql(this::open);
     }
 
     public void resetDatabase() {
         withSql(() -> {
-            connection = DriverManager.getConnection("jdbc:hsqldb:mem:mymemdb.db", "SA", "");
+            Connection connection = open();
             try (var preparedStatement = connection.prepareStatement("delete from shoppingcart")) {
                 preparedStatement.execute();
                 connection.commit();
@@ -42,26 +55,83 @@ public class Database {
         });
     }
 
+    // returns the open connection for this provider, opening it if it was closed.
+    // The schema statements are idempotent, so they simply run on every new connection.
+    private Connection open() throws SQLException {
+        synchronized (connections) {
+            Connection connection = connections.get(provider);
+            if (connection == null || connection.isClosed()) {
+                connection = provider.openConnection();
+                createSchema(connection);
+                connections.put(provider, connection);
+            }
+            return connection;
+        }
+    }
+
+    private static void createSchema(Connection connection) throws SQLException {
+        try (var preparedStatement = connection.prepareStatement("create table if not exists shoppingcart (cartid varchar(100) default 'default' not null, " +
+                "type varchar(100), name varchar(100), quantity int, priceperunit double, linekey varchar(210))")) {
+            preparedStatement.execute();
+        }
+        // tables created before carts had ids or merged lines had keys get the missing columns
+        addColumnIfMissing(connection, "CARTID", "cartid varchar(100) default 'default' not null");
+        addColumnIfMissing(connection, "LINEKEY", "linekey varchar(210)");
+        // lets merges and per-cart queries find a cart's lines without a scan
+        try (var preparedStatement = connection.prepareStatement("create index if not exists shoppingcart_line on shoppingcart (cartid, name, type)")) {
+            preparedStatement.execute();
+        }
+        // at most one merged line per product and cart; appended lines leave linekey null,
+        // and a unique index never compares nulls, so they may repeat
+        try (var preparedStatement = connection.prepareStatement("create unique index if not exists shoppingcart_merged_line on shoppingcart (cartid, linekey)")) {
+            preparedStatement.execute();
+            connection.commit();
+        }
+    }
+
+    private static void addColumnIfMissing(Connection connection, String column, String definition) throws SQLException {
+        try (var columns = connection.getMetaData().getColumns(null, null, "SHOPPINGCART", column)) {
+            if (columns.next())
+                return;
+        }
+        try (var preparedStatement = connection.prepareStatement("alter table shoppingcart add column " + definition)) {
+            preparedStatement.execute();
+        }
+    }
+
     public interface SqlSupplier<T> {
         T doSql() throws SQLException;
     }
     public <T> T withSql(SqlSupplier<T> sqlSupplier) {
+        return withSql(null, sqlSupplier);
+    }
+
+    // same as withSql(sqlSupplier), but slow calls are recorded as SqlEvents with this SQL text
+    public <T> T withSql(String sql, SqlSupplier<T> sqlSupplier) {
+        SqlEvent event = new SqlEvent();
+        event.begin();
         try {
             return sqlSupplier.doSql();
         } catch (SQLException e) {
             throw new RuntimeException(e);
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.sql = sql;
+                event.commit();
+            }
         }
     }
 
     public void close() {
         withSql( () -> {
+            Connection connection = connections.remove(provider);
             if (connection != null) {
                 connection.close();
             }
             return null;
         });
-        connection = null;
     }
 
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,13 @@
+package org.example.Amazon;
+
+// When a LoggedShoppingCart forces its log to disk.
+public enum FsyncPolicy {
+    // add() returns once its record is on disk. Writers that arrive while a force
+    // is running are covered by the next one (group commit).
+    ON_COMMIT,
+    // a background thread forces the log at a fixed interval; a crash can lose
+    // the adds of the last interval.
+    PERIODIC,
+    // never force; the OS writes the pages back whenever it likes.
+    NEVER
+}
@@ -0,0 +1,172 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// Shopping cart that only lives in memory. Not thread-safe. In MERGE mode removing a
+// product moves the last line into its place, so the order of the lines can change.
+public class InMemoryShoppingCart implements AggregatingCart {
+
+    private final LineMode lineMode;
+    private final List<Item> items = new ArrayList<>();
+    // position of each product's line in items, only used in MERGE mode
+    private final Map<ItemType, Map<String, Integer>> lines = new EnumMap<>(ItemType.class);
+    // kept up to date on every change as a compensated sum (Neumaier): subtotalError
+    // holds what rounding took off subtotal, so taking out a large line gives back
+    // the small lines it had swallowed instead of leaving zero
+    private double subtotal;
+    private double subtotalError;
+    private int electronicLines;
+
+    public InMemoryShoppingCart() {
+        this(LineMode.APPEND);
+    }
+
+    public InMemoryShoppingCart(LineMode lineMode) {
+        this.lineMode = lineMode;
+    }
+
+    @Override
+    public void add(Item item) {
+        if (lineMode == LineMode.MERGE) {
+            Integer index = lineIndex(item.getName(), item.getType());
+            if (index != null) {
+                Item line = items.get(index);
+                items.set(index, new Item(line.getType(), line.getName(), line.getQuantity() + item.getQuantity(), line.getPricePerUnit()));
+                addToSubtotal(line.getPricePerUnit() * item.getQuantity());
+                return;
+            }
+            lines.computeIfAbsent(item.getType(), type -> new HashMap<>()).put(item.getName(), items.size());
+        }
+
+        items.add(item);
+        addToSubtotal(item.getPricePerUnit() * item.getQuantity());
+        if (item.getType() == ItemType.ELECTRONIC)
+            electronicLines++;
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return new ArrayList<>(items);
+    }
+
+    @Override
+    public int numberOfItems() {
+        return items.size();
+    }
+
+    @Override
+    public void remove(String name, ItemType type) {
+        if (lineMode == LineMode.MERGE) {
+            Integer index = lineIndex(name, type);
+            if (index == null)
+                return;
+            lines.get(type).remove(name);
+            Item line = items.get(index);
+            int lastIndex = items.size() - 1;
+            Item last = items.remove(lastIndex);
+            if (index != lastIndex) {
+                items.set(index, last);
+                lines.get(last.getType()).put(last.getName(), index);
+            }
+            removed(line);
+            return;
+        }
+        // a product can have several lines in APPEND mode; keep the others in order
+        int kept = 0;
+        for (int i = 0; i < items.size(); i++) {
+            Item item = items.get(i);
+            if (isLine(item, name, type))
+                removed(item);
+            else
+                items.set(kept++, item);
+        }
+        items.subList(kept, items.size()).clear();
+    }
+
+    private void removed(Item line) {
+        addToSubtotal(-line.getPricePerUnit() * line.getQuantity());
+        if (line.getType() == ItemType.ELECTRONIC)
+            electronicLines--;
+    }
+
+    @Override
+    public void updateQuantity(String name, ItemType type, int quantity) {
+        if (quantity <= 0) {
+            remove(name, type);
+            return;
+        }
+        if (lineMode == LineMode.MERGE) {
+            Integer index = lineIndex(name, type);
+            if (index != null)
+                setQuantity(index, quantity);
+            return;
+        }
+        for (int i = 0; i < items.size(); i++) {
+            if (isLine(items.get(i), name, type))
+                setQuantity(i, quantity);
+        }
+    }
+
+    private void setQuantity(int index, int quantity) {
+        Item item = items.get(index);
+        items.set(index, new Item(item.getType(), item.getName(), quantity, item.getPricePerUnit()));
+        addToSubtotal(item.getPricePerUnit() * quantity);
+        addToSubtotal(-item.getPricePerUnit() * item.getQuantity());
+    }
+
+    private void addToSubtotal(double price) {
+        double total = subtotal + price;
+        subtotalError += Math.abs(subtotal) >= Math.abs(price) ? (subtotal - total) + price : (price - total) + subtotal;
+        subtotal = total;
+    }
+
+    @Override
+    public void clear() {
+        items.clear();
+        lines.clear();
+        subtotal = 0;
+        subtotalError = 0;
+        electronicLines = 0;
+    }
+
+    @Override
+    public LineMode getLineMode() {
+        return lineMode;
+    }
+
+    @Override
+    public List<Item> linesOf(String name, ItemType type) {
+        if (lineMode == LineMode.MERGE) {
+            Integer index = lineIndex(name, type);
+            return index == null ? new ArrayList<>() : new ArrayList<>(List.of(items.get(index)));
+        }
+        List<Item> found = new ArrayList<>();
+        for (Item item : items) {
+            if (isLine(item, name, type))
+                found.add(item);
+        }
+        return found;
+    }
+
+    private Integer lineIndex(String name, ItemType type) {
+        Map<String, Integer> byName = lines.get(type);
+        return byName == null ? null : byName.get(name);
+    }
+
+    private static boolean isLine(Item item, String name, ItemType type) {
+        return item.getType() == type && Objects.equals(item.getName(), name);
+    }
+
+    @Override
+    public CartAggregates aggregates() {
+        return new CartAggregates(subtotal + subtotalError, items.size(), electronicLines);
+    }
+}
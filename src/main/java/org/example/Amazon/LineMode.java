@@ -0,0 +1,9 @@
+package org.example.Amazon;
+
+// What a cart does when the same product (name and type) is added again.
+public enum LineMode {
+    // every add becomes a new line
+    APPEND,
+    // the quantity is added to the existing line, which keeps its original price per unit
+    MERGE
+}
@@ -0,0 +1,303 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Shopping cart kept in memory and made durable by an append-only log file
+ * instead of a database insert per item.
+ *
+ * <p>The log is memory-mapped and grows by doubling. Each record is
+ * {@code [int length][int crc32][payload]}; opening an existing log replays
+ * every intact record and stops at the first torn or zeroed one, which is
+ * where new records are appended. {@link #replay(Path, ShoppingCart)} feeds a
+ * log into any other cart, e.g. a {@link ShoppingCartAdaptor} to load it into
+ * the shoppingcart table offline.
+ */
+public class LoggedShoppingCart implements AggregatingCart, AutoCloseable {
+
+    private static final int INITIAL_SIZE = 1 << 20;
+    private static final int RECORD_HEADER = 8;
+    private static final byte OP_ADD = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_UPDATE = 3;
+    private static final byte OP_CLEAR = 4;
+
+    private final InMemoryShoppingCart cart;
+    private final FileChannel channel;
+    private final FsyncPolicy policy;
+    private final ScheduledExecutorService flusher;
+    private final CRC32 crc = new CRC32();
+    private final Object flushLock = new Object();
+
+    private MappedByteBuffer log;
+    private int writePosition;
+    private int durablePosition;
+
+    public LoggedShoppingCart(Path file, FsyncPolicy policy) {
+        this(file, policy, Duration.ofMillis(10));
+    }
+
+    public LoggedShoppingCart(Path file, FsyncPolicy policy, LineMode lineMode) {
+        this(file, policy, Duration.ofMillis(10), lineMode);
+    }
+
+    public LoggedShoppingCart(Path file, FsyncPolicy policy, Duration flushInterval) {
+        this(file, policy, flushInterval, LineMode.APPEND);
+    }
+
+    public LoggedShoppingCart(Path file, FsyncPolicy policy, Duration flushInterval, LineMode lineMode) {
+        this.policy = policy;
+        this.cart = new InMemoryShoppingCart(lineMode);
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.log = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(channel.size(), INITIAL_SIZE));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        writePosition = recover(log, cart, new int[1]);
+        // zero whatever follows the last good record so a later, shorter record
+        // cannot make stale bytes behind it look valid again
+        for (int i = writePosition; i < log.capacity(); i++)
+            log.put(i, (byte) 0);
+        log.force();
+        durablePosition = writePosition;
+
+        if (policy == FsyncPolicy.PERIODIC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cart-log-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long nanos = flushInterval.toNanos();
+            flusher.scheduleWithFixedDelay(this::flush, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    @Override
+    public void add(Item item) {
+        log(OP_ADD, item.getType(), item.getName(), item.getQuantity(), item.getPricePerUnit(), () -> cart.add(item));
+    }
+
+    @Override
+    public void remove(String name, ItemType type) {
+        log(OP_REMOVE, type, name, 0, 0, () -> cart.remove(name, type));
+    }
+
+    @Override
+    public void updateQuantity(String name, ItemType type, int quantity) {
+        log(OP_UPDATE, type, name, quantity, 0, () -> cart.updateQuantity(name, type, quantity));
+    }
+
+    @Override
+    public void clear() {
+        log(OP_CLEAR, null, null, 0, 0, cart::clear);
+    }
+
+    @Override
+    public LineMode getLineMode() {
+        return cart.getLineMode();
+    }
+
+    // appends the record, applies the change in memory and waits for the disk as the policy says
+    private void log(byte op, ItemType type, String name, int quantity, double price, Runnable apply) {
+        int end;
+        synchronized (this) {
+            end = append(op, type, name, quantity, price);
+            apply.run();
+        }
+        if (policy == FsyncPolicy.ON_COMMIT)
+            awaitDurable(end);
+    }
+
+    @Override
+    public synchronized List<Item> getItems() {
+        return cart.getItems();
+    }
+
+    @Override
+    public synchronized int numberOfItems() {
+        return cart.numberOfItems();
+    }
+
+    @Override
+    public synchronized CartAggregates aggregates() {
+        return cart.aggregates();
+    }
+
+    @Override
+    public synchronized List<Item> linesOf(String name, ItemType type) {
+        return cart.linesOf(name, type);
+    }
+
+    // Forces everything appended so far to disk.
+    public void flush() {
+        int target;
+        synchronized (this) {
+            target = writePosition;
+        }
+        awaitDurable(target);
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null)
+            flusher.shutdownNow();
+        flush();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Applies every intact record of the log to the target cart and returns how many there were.
+    public static int replay(Path file, ShoppingCart target) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int[] records = {0};
+            recover(buffer, target, records);
+            return records[0];
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // One thread at a time forces the log. Whoever gets the lock forces every record
+    // appended so far, so the writers queued behind it usually find their record
+    // already durable and return without forcing again.
+    private void awaitDurable(int position) {
+        synchronized (flushLock) {
+            if (durablePosition >= position)
+                return;
+
+            MappedByteBuffer buffer;
+            int target;
+            synchronized (this) {
+                buffer = log;
+                target = writePosition;
+            }
+            buffer.force();
+            durablePosition = target;
+        }
+    }
+
+    private int append(byte op, ItemType type, String name, int quantity, double price) {
+        byte[] nameBytes = name == null ? null : name.getBytes(StandardCharsets.UTF_8);
+        // the record keeps the name's length in a short, and -1 stands for no name
+        if (nameBytes != null && nameBytes.length > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Item name is longer than " + Short.MAX_VALUE + " bytes in UTF-8");
+        int payload = 1;
+        if (op != OP_CLEAR)
+            payload += 1 + 2 + (nameBytes == null ? 0 : nameBytes.length);
+        if (op == OP_ADD || op == OP_UPDATE)
+            payload += 4;
+        if (op == OP_ADD)
+            payload += 8;
+        ensureCapacity(RECORD_HEADER + payload);
+
+        int start = writePosition;
+        log.position(start + RECORD_HEADER);
+        log.put(op);
+        if (op != OP_CLEAR) {
+            log.put((byte) type.ordinal());
+            if (nameBytes == null) {
+                log.putShort((short) -1);
+            } else {
+                log.putShort((short) nameBytes.length);
+                log.put(nameBytes);
+            }
+        }
+        if (op == OP_ADD || op == OP_UPDATE)
+            log.putInt(quantity);
+        if (op == OP_ADD)
+            log.putDouble(price);
+
+        crc.reset();
+        crc.update(log.duplicate().position(start + RECORD_HEADER).limit(start + RECORD_HEADER + payload));
+        log.putInt(start + 4, (int) crc.getValue());
+        // the length goes in last: a record is not there until its length is
+        log.putInt(start, payload);
+
+        writePosition = start + RECORD_HEADER + payload;
+        return writePosition;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (writePosition + bytes <= log.capacity())
+            return;
+
+        long size = log.capacity();
+        while (writePosition + bytes > size)
+            size *= 2;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException("Cart log is full");
+        try {
+            log = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Applies records until the first one that is missing or does not match its checksum
+    // and returns the position right after the last good record.
+    private static int recover(ByteBuffer log, ShoppingCart target, int[] records) {
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (position + RECORD_HEADER <= log.limit()) {
+            int length = log.getInt(position);
+            if (length <= 0 || position + RECORD_HEADER + length > log.limit())
+                break;
+
+            ByteBuffer payload = log.duplicate().position(position + RECORD_HEADER).limit(position + RECORD_HEADER + length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != log.getInt(position + 4))
+                break;
+
+            byte op = payload.get();
+            if (op == OP_CLEAR) {
+                target.clear();
+            } else {
+                ItemType type = ItemType.values()[payload.get()];
+                String name = readName(payload);
+                if (op == OP_ADD)
+                    target.add(new Item(type, name, payload.getInt(), payload.getDouble()));
+                else if (op == OP_REMOVE)
+                    target.remove(name, type);
+                else if (op == OP_UPDATE)
+                    target.updateQuantity(name, type, payload.getInt());
+            }
+            records[0]++;
+            position += RECORD_HEADER + length;
+        }
+        return position;
+    }
+
+    private static String readName(ByteBuffer payload) {
+        short length = payload.getShort();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.List;
+
+// Wraps a cart and publishes every change made through it to a CartChangePublisher.
+// Changes made to the wrapped cart directly, e.g. by CartExpiry, are not published.
+public class ObservableShoppingCart implements AggregatingCart {
+
+    private final AggregatingCart cart;
+    private final String cartId;
+    private final CartChangePublisher changes;
+
+    public ObservableShoppingCart(AggregatingCart cart, String cartId, CartChangePublisher changes) {
+        this.cart = cart;
+        this.cartId = cartId;
+        this.changes = changes;
+    }
+
+    public String getCartId() {
+        return cartId;
+    }
+
+    // the feed this cart publishes to
+    public CartChangePublisher changes() {
+        return changes;
+    }
+
+    // The change is applied and published under one lock, so the feed has this cart's
+    // changes in the order they were made. Plain reads do not take it; state() does.
+    @Override
+    public synchronized void add(Item item) {
+        cart.add(item);
+        changes.publish(CartChange.Kind.ADD, cartId, item.getType(), item.getName(), item.getQuantity(), item.getPricePerUnit());
+    }
+
+    @Override
+    public synchronized void remove(String name, ItemType type) {
+        cart.remove(name, type);
+        changes.publish(CartChange.Kind.REMOVE, cartId, type, name, 0, 0);
+    }
+
+    @Override
+    public synchronized void updateQuantity(String name, ItemType type, int quantity) {
+        cart.updateQuantity(name, type, quantity);
+        changes.publish(CartChange.Kind.UPDATE, cartId, type, name, quantity, 0);
+    }
+
+    @Override
+    public synchronized void clear() {
+        cart.clear();
+        changes.publish(CartChange.Kind.CLEAR, cartId, null, null, 0, 0);
+    }
+
+    // The items together with the feed's sequence number at the moment they were read. No change
+    // to this cart can fall between the two, so a consumer that loads this and then applies
+    // this cart's changes numbered above getSequence() ends up with the cart's contents.
+    public synchronized State state() {
+        return new State(cart.getItems(), changes.getSequence());
+    }
+
+    public static final class State {
+        private final List<Item> items;
+        private final long sequence;
+
+        private State(List<Item> items, long sequence) {
+            this.items = items;
+            this.sequence = sequence;
+        }
+
+        public List<Item> getItems() {
+            return items;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+    }
+
+    @Override
+    public LineMode getLineMode() {
+        return cart.getLineMode();
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return cart.getItems();
+    }
+
+    @Override
+    public int numberOfItems() {
+        return cart.numberOfItems();
+    }
+
+    @Override
+    public CartAggregates aggregates() {
+        return cart.aggregates();
+    }
+
+    @Override
+    public List<Item> linesOf(String name, ItemType type) {
+        return cart.linesOf(name, type);
+    }
+}
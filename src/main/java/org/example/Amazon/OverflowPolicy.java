@@ -0,0 +1,12 @@
+package org.example.Amazon;
+
+// What a CartChangePublisher does when a subscriber's buffer is full.
+public enum OverflowPolicy {
+    // the new change is not buffered for that subscriber; it sees a gap in the sequence numbers.
+    DROP_NEWEST,
+    // the oldest buffered change makes room for the new one; the gap is at the front instead.
+    DROP_OLDEST,
+    // the cart call that made the change waits until the subscriber has taken one,
+    // so a slow subscriber slows the writers down but never misses a change.
+    BLOCK
+}
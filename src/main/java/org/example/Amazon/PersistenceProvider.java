@@ -0,0 +1,106 @@
+package org.example.Amazon;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Where the shoppingcart table lives. {@link Database} opens one connection per
+ * provider and shares it between all Database objects built on that provider.
+ *
+ * <p>The provider used by {@code new Database()} is picked once at startup: the
+ * {@code cart.store.url} system property (with optional {@code cart.store.user}
+ * and {@code cart.store.password}) if set, otherwise the in-memory HSQLDB the
+ * project has always used. {@link Database#setDefaultProvider} overrides it.
+ */
+public interface PersistenceProvider {
+
+    Connection openConnection() throws SQLException;
+
+    static PersistenceProvider inMemory() {
+        return JdbcProvider.IN_MEMORY;
+    }
+
+    // a separate in-memory database that shares nothing with the default one
+    static PersistenceProvider inMemory(String name) {
+        return jdbc("jdbc:hsqldb:mem:" + name, "SA", "");
+    }
+
+    // HSQLDB database stored in files next to the given path, with settings tuned
+    // for a write-heavy cart: group the log fsyncs, keep a large log before
+    // checkpointing and use nio for the data file. The row cache and the data file
+    // only exist for CACHED tables, so new tables are created CACHED instead of
+    // MEMORY; a table created before that keeps its type.
+    static PersistenceProvider embeddedFile(Path path) {
+        Map<String, String> settings = new LinkedHashMap<>();
+        settings.put("hsqldb.default_table_type", "cached");
+        settings.put("hsqldb.write_delay_millis", "100");
+        settings.put("hsqldb.log_size", "200");
+        settings.put("hsqldb.cache_rows", "100000");
+        settings.put("hsqldb.nio_data_file", "true");
+        return embeddedFile(path, settings);
+    }
+
+    static PersistenceProvider embeddedFile(Path path, Map<String, String> settings) {
+        StringBuilder url = new StringBuilder("jdbc:hsqldb:file:").append(path.toAbsolutePath());
+        for (Map.Entry<String, String> setting : settings.entrySet())
+            url.append(';').append(setting.getKey()).append('=').append(setting.getValue());
+        // close the files when the last connection goes away
+        url.append(";shutdown=true");
+        return jdbc(url.toString(), "SA", "");
+    }
+
+    static PersistenceProvider jdbc(String url, String user, String password) {
+        return new JdbcProvider(url, user, password);
+    }
+
+    static PersistenceProvider fromSystemProperties() {
+        String url = System.getProperty("cart.store.url");
+        if (url == null)
+            return inMemory();
+        return jdbc(url, System.getProperty("cart.store.user", "SA"), System.getProperty("cart.store.password", ""));
+    }
+
+    final class JdbcProvider implements PersistenceProvider {
+
+        private static final JdbcProvider IN_MEMORY = new JdbcProvider("jdbc:hsqldb:mem:mymemdb.db", "SA", "");
+
+        private final String url;
+        private final String user;
+        private final String password;
+
+        private JdbcProvider(String url, String user, String password) {
+            this.url = url;
+            this.user = user;
+            this.password = password;
+        }
+
+        @Override
+        public Connection openConnection() throws SQLException {
+            return DriverManager.getConnection(url, user, password);
+        }
+
+        // two providers for the same database share one connection
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            JdbcProvider that = (JdbcProvider) o;
+            return url.equals(that.url) && user.equals(that.user);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(url, user);
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+}
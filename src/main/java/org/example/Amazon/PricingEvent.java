@@ -0,0 +1,30 @@
+package org.example.Amazon;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// One PriceRule evaluated by Amazon.calculate, recorded by JFR when it takes longer than the threshold.
+@Name("org.example.Pricing")
+@Label("Price Rule")
+@Category({"Shop", "Amazon"})
+@Description("One PriceRule evaluated by Amazon.calculate")
+@Threshold("1 ms")
+@StackTrace(false)
+class PricingEvent extends Event {
+
+    @Label("Rule")
+    Class<?> rule;
+
+    @Label("Cart Size")
+    @Description("Lines in the cart that was priced")
+    int cartSize;
+
+    @Label("From Aggregates")
+    @Description("Whether the rule priced the cached aggregates instead of the items")
+    boolean fromAggregates;
+}
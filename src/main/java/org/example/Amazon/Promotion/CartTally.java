@@ -0,0 +1,59 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Item;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Quantity and subtotal of a cart per item type and per product name, built in one pass.
+public class CartTally {
+
+    private final int[] typeQuantity = new int[ItemType.values().length];
+    private final double[] typeSubtotal = new double[ItemType.values().length];
+    private final Map<String, Line> products = new HashMap<>();
+
+    private static class Line {
+        int quantity;
+        double subtotal;
+    }
+
+    public static CartTally of(List<Item> cart) {
+        CartTally tally = new CartTally();
+        for (Item item : cart) {
+            double subtotal = item.getPricePerUnit() * item.getQuantity();
+            int type = item.getType().ordinal();
+            tally.typeQuantity[type] += item.getQuantity();
+            tally.typeSubtotal[type] += subtotal;
+
+            Line line = tally.products.computeIfAbsent(item.getName(), name -> new Line());
+            line.quantity += item.getQuantity();
+            line.subtotal += subtotal;
+        }
+        return tally;
+    }
+
+    public int quantityOf(ItemType type) {
+        return typeQuantity[type.ordinal()];
+    }
+
+    public double subtotalOf(ItemType type) {
+        return typeSubtotal[type.ordinal()];
+    }
+
+    public int quantityOf(String name) {
+        Line line = products.get(name);
+        return line == null ? 0 : line.quantity;
+    }
+
+    public double subtotalOf(String name) {
+        Line line = products.get(name);
+        return line == null ? 0 : line.subtotal;
+    }
+
+    public Set<String> productNames() {
+        return products.keySet();
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Cost.ItemType;
+
+// A fixed amount off one product, never more than what the product costs.
+public class ProductCoupon implements Promotion {
+
+    private final String name;
+    private final double amountOff;
+
+    public ProductCoupon(String name, double amountOff) {
+        this.name = name;
+        this.amountOff = amountOff;
+    }
+
+    @Override
+    public ItemType getTriggerType() {
+        return null;
+    }
+
+    @Override
+    public String getTriggerName() {
+        return name;
+    }
+
+    @Override
+    public int getMinimumQuantity() {
+        return 1;
+    }
+
+    @Override
+    public double discount(CartTally tally) {
+        return Math.min(amountOff, tally.subtotalOf(name));
+    }
+}
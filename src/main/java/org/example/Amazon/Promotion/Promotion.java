@@ -0,0 +1,36 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.PriceRule;
+import org.example.Amazon.Item;
+
+import java.util.List;
+
+/**
+ * A discount that only applies once the cart holds at least
+ * {@link #getMinimumQuantity()} units of its trigger, which is either an item
+ * type or a product name. {@link PromotionEngine} indexes promotions by their
+ * trigger; used on its own as a PriceRule a promotion tallies the whole cart.
+ */
+public interface Promotion extends PriceRule {
+
+    // the item type that triggers this promotion, or null if a product name does
+    ItemType getTriggerType();
+
+    // the product name that triggers this promotion, or null if an item type does
+    String getTriggerName();
+
+    int getMinimumQuantity();
+
+    // amount to take off the cart, called only when the trigger is met
+    double discount(CartTally tally);
+
+    @Override
+    default double priceToAggregate(List<Item> cart) {
+        CartTally tally = CartTally.of(cart);
+        int quantity = getTriggerType() != null ? tally.quantityOf(getTriggerType()) : tally.quantityOf(getTriggerName());
+        if (quantity < getMinimumQuantity())
+            return 0;
+        return -discount(tally);
+    }
+}
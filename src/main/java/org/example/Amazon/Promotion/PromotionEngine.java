@@ -0,0 +1,75 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.PriceRule;
+import org.example.Amazon.Item;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Prices any number of promotions as a single PriceRule.
+ *
+ * <p>Promotions are indexed by trigger (item type or product name) and then by
+ * minimum quantity. Pricing a cart tallies it once and then only looks at the
+ * promotions whose trigger is in the cart with enough units, so the cost grows
+ * with the promotions that apply rather than with all of them.
+ */
+public class PromotionEngine implements PriceRule {
+
+    private final Map<ItemType, NavigableMap<Integer, List<Promotion>>> byType = new EnumMap<>(ItemType.class);
+    private final Map<String, NavigableMap<Integer, List<Promotion>>> byName = new HashMap<>();
+    private int size;
+
+    public PromotionEngine() {
+    }
+
+    public PromotionEngine(List<? extends Promotion> promotions) {
+        for (Promotion promotion : promotions)
+            add(promotion);
+    }
+
+    public void add(Promotion promotion) {
+        NavigableMap<Integer, List<Promotion>> byQuantity = promotion.getTriggerType() != null
+                ? byType.computeIfAbsent(promotion.getTriggerType(), type -> new TreeMap<>())
+                : byName.computeIfAbsent(promotion.getTriggerName(), name -> new TreeMap<>());
+        byQuantity.computeIfAbsent(promotion.getMinimumQuantity(), quantity -> new ArrayList<>()).add(promotion);
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // the total discount of every promotion that applies, as a negative price
+    @Override
+    public double priceToAggregate(List<Item> cart) {
+        if (size == 0 || cart.isEmpty())
+            return 0;
+
+        CartTally tally = CartTally.of(cart);
+        double discount = 0;
+        for (Map.Entry<ItemType, NavigableMap<Integer, List<Promotion>>> entry : byType.entrySet())
+            discount += apply(entry.getValue(), tally.quantityOf(entry.getKey()), tally);
+        for (String name : tally.productNames()) {
+            NavigableMap<Integer, List<Promotion>> byQuantity = byName.get(name);
+            if (byQuantity != null)
+                discount += apply(byQuantity, tally.quantityOf(name), tally);
+        }
+        return -discount;
+    }
+
+    private static double apply(NavigableMap<Integer, List<Promotion>> byQuantity, int quantity, CartTally tally) {
+        double discount = 0;
+        for (List<Promotion> promotions : byQuantity.headMap(quantity, true).values()) {
+            for (Promotion promotion : promotions)
+                discount += promotion.discount(tally);
+        }
+        return discount;
+    }
+}
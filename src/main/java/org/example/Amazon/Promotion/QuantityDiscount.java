@@ -0,0 +1,37 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Cost.ItemType;
+
+// A fixed amount off once the cart holds at least a number of units of one product.
+public class QuantityDiscount implements Promotion {
+
+    private final String name;
+    private final int minimumQuantity;
+    private final double amountOff;
+
+    public QuantityDiscount(String name, int minimumQuantity, double amountOff) {
+        this.name = name;
+        this.minimumQuantity = minimumQuantity;
+        this.amountOff = amountOff;
+    }
+
+    @Override
+    public ItemType getTriggerType() {
+        return null;
+    }
+
+    @Override
+    public String getTriggerName() {
+        return name;
+    }
+
+    @Override
+    public int getMinimumQuantity() {
+        return minimumQuantity;
+    }
+
+    @Override
+    public double discount(CartTally tally) {
+        return amountOff;
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Cost.ItemType;
+
+// A percentage off every item of one type.
+public class TypeDiscount implements Promotion {
+
+    private final ItemType type;
+    private final double percent;
+
+    public TypeDiscount(ItemType type, double percent) {
+        this.type = type;
+        this.percent = percent;
+    }
+
+    @Override
+    public ItemType getTriggerType() {
+        return type;
+    }
+
+    @Override
+    public String getTriggerName() {
+        return null;
+    }
+
+    @Override
+    public int getMinimumQuantity() {
+        return 1;
+    }
+
+    @Override
+    public double discount(CartTally tally) {
+        return tally.subtotalOf(type) * percent / 100;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.Amazon;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cart storage spread over several independent databases, each with its own
+ * connection. A cart id always maps to the same shard, so all lines of a cart
+ * live together and every cart operation touches exactly one database.
+ * The number of shards is fixed for the lifetime of the data.
+ */
+public class ShardedCartStore implements AutoCloseable {
+
+    private final List<Database> shards;
+
+    public ShardedCartStore(List<PersistenceProvider> providers) {
+        if (providers.isEmpty())
+            throw new IllegalArgumentException("A cart store needs at least one shard");
+        this.shards = new ArrayList<>(providers.size());
+        for (PersistenceProvider provider : providers)
+            shards.add(new Database(provider));
+    }
+
+    // shards named name-0, name-1, ... in memory
+    public static ShardedCartStore inMemory(String name, int shardCount) {
+        List<PersistenceProvider> providers = new ArrayList<>(shardCount);
+        for (int i = 0; i < shardCount; i++)
+            providers.add(PersistenceProvider.inMemory(name + "-" + i));
+        return new ShardedCartStore(providers);
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public Database shardFor(String cartId) {
+        // String.hashCode is weak in the low bits for similar ids, so spread it first
+        int hash = cartId.hashCode() * 0x9E3779B9;
+        return shards.get(Math.floorMod(hash ^ (hash >>> 16), shards.size()));
+    }
+
+    public ShardedShoppingCart cart(String cartId) {
+        return new ShardedShoppingCart(this, cartId);
+    }
+
+    public ShardedShoppingCart cart(String cartId, LineMode lineMode) {
+        return new ShardedShoppingCart(this, cartId, lineMode);
+    }
+
+    // one batched delete per shard that holds any of the carts
+    public void deleteCarts(List<String> cartIds) {
+        Map<Database, List<String>> byShard = new HashMap<>();
+        for (String cartId : cartIds)
+            byShard.computeIfAbsent(shardFor(cartId), shard -> new ArrayList<>()).add(cartId);
+        byShard.forEach(ShoppingCartAdaptor::deleteCarts);
+    }
+
+    public void resetDatabase() {
+        for (Database shard : shards)
+            shard.resetDatabase();
+    }
+
+    @Override
+    public void close() {
+        for (Database shard : shards)
+            shard.close();
+    }
+}
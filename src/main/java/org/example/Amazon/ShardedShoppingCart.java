@@ -0,0 +1,71 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.List;
+
+// One cart of a ShardedCartStore. Every call goes to the shard that holds the cart.
+public class ShardedShoppingCart implements AggregatingCart {
+
+    private final String cartId;
+    private final ShoppingCartAdaptor cart;
+
+    public ShardedShoppingCart(ShardedCartStore store, String cartId) {
+        this(store, cartId, LineMode.APPEND);
+    }
+
+    public ShardedShoppingCart(ShardedCartStore store, String cartId, LineMode lineMode) {
+        this.cartId = cartId;
+        this.cart = new ShoppingCartAdaptor(store.shardFor(cartId), cartId, lineMode);
+    }
+
+    public String getCartId() {
+        return cartId;
+    }
+
+    @Override
+    public void add(Item item) {
+        cart.add(item);
+    }
+
+    @Override
+    public List<Item> getItems() {
+        return cart.getItems();
+    }
+
+    @Override
+    public int numberOfItems() {
+        return cart.numberOfItems();
+    }
+
+    @Override
+    public void remove(String name, ItemType type) {
+        cart.remove(name, type);
+    }
+
+    @Override
+    public void updateQuantity(String name, ItemType type, int quantity) {
+        cart.updateQuantity(name, type, quantity);
+    }
+
+    @Override
+    public void clear() {
+        cart.clear();
+    }
+
+    @Override
+    public LineMode getLineMode() {
+        return cart.getLineMode();
+    }
+
+    @Override
+    public CartAggregates aggregates() {
+        return cart.aggregates();
+    }
+
+    @Override
+    public List<Item> linesOf(String name, ItemType type) {
+        return cart.linesOf(name, type);
+    }
+}
@@ -1,5 +1,7 @@
 package org.example.Amazon;
 
+import org.example.Amazon.Cost.ItemType;
+
 import java.util.List;
 
     public interface ShoppingCart{
@@ -7,4 +9,15 @@ import java.util.List;
         public void add(Item item);
         public List<Item> getItems();
         public int numberOfItems();
+
+        // Removes the lines of the product with this name and type.
+        public void remove(String name, ItemType type);
+        // Sets the quantity of the lines of this product; zero or less removes them.
+        public void updateQuantity(String name, ItemType type, int quantity);
+        // Removes every line of this cart.
+        public void clear();
+        // What add does with a product that already has a line.
+        default LineMode getLineMode() {
+            return LineMode.APPEND;
+        }
     }
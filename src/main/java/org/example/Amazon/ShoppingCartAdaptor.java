@@ -1,29 +1,65 @@
 package org.example.Amazon;
 
+import org.example.Amazon.Cost.CartAggregates;
 import org.example.Amazon.Cost.ItemType;
 
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
 import java.util.ArrayList;
 import java.util.List;
 
 // Class responsible for querying and saving invoices in the database
-public class ShoppingCartAdaptor implements ShoppingCart {
+public class ShoppingCartAdaptor implements AggregatingCart {
+
+    public static final String DEFAULT_CART = "default";
 
     private Database connection;  // Represents the database connection object
+    private final String cartId;  // Only rows with this cart id belong to this cart
+    private final LineMode lineMode;
+    private final CartExpiry expiry;  // Touched before every call, or null when carts don't expire
 
     // Constructor that initializes the database connection using dependency injection
     public ShoppingCartAdaptor(Database connection) {
+        this(connection, DEFAULT_CART);
+    }
+
+    public ShoppingCartAdaptor(Database connection, String cartId) {
+        this(connection, cartId, LineMode.APPEND);
+    }
+
+    public ShoppingCartAdaptor(Database connection, String cartId, LineMode lineMode) {
+        this(connection, cartId, lineMode, null);
+    }
+
+    // Touches the cart's expiry before each call, so the reaper never deletes a cart that is in use
+    public ShoppingCartAdaptor(Database connection, String cartId, LineMode lineMode, CartExpiry expiry) {
         this.connection = connection;
+        this.cartId = cartId;
+        this.lineMode = lineMode;
+        this.expiry = expiry;
+    }
+
+    private void touch() {
+        if (expiry != null)
+            expiry.touch(cartId);
     }
 
     @Override
     public void add(Item item) {
-        connection.withSql(() -> {  // Executes SQL operations within the database connection
-            try (var ps = connection.getConnection().prepareStatement("insert into shoppingcart (name, type, quantity, priceperunit) values (?,?,?,?)")) {  // Prepares the SQL query to insert a new invoice
-                ps.setString(1, item.getName());  // Sets the customer name in the query
-                ps.setString(2, item.getType().name());  // Sets the invoice value in the query
-                ps.setInt(3, item.getQuantity());  // Sets the invoice value in the query
-                ps.setDouble(4, item.getPricePerUnit());  // Sets the invoice value in the query
+        touch();
+        if (lineMode == LineMode.MERGE) {
+            merge(item);
+            return;
+        }
+        String sql = "insert into shoppingcart (cartid, name, type, quantity, priceperunit) values (?,?,?,?,?)";
+        connection.withSql(sql, () -> {  // Executes SQL operations within the database connection
+            try (var ps = connection.getConnection().prepareStatement(sql)) {  // Prepares the SQL query to insert a new invoice
+                ps.setString(1, cartId);  // Sets the cart the line belongs to
+                ps.setString(2, item.getName());  // Sets the customer name in the query
+                ps.setString(3, item.getType().name());  // Sets the invoice value in the query
+                ps.setInt(4, item.getQuantity());  // Sets the invoice value in the query
+                ps.setDouble(5, item.getPricePerUnit());  // Sets the invoice value in the query
                 ps.execute();  // Executes the insert query
 
                 connection.getConnection().commit();  // Commits the transaction to make the changes permanent
@@ -32,10 +68,52 @@ public class ShoppingCartAdaptor implements ShoppingCart {
         });
     }
 
+    // Adds the quantity to the existing line for this product, or inserts the line if there is none.
+    // A product without a name is a product too, hence "is not distinct from" instead of "=".
+    private void merge(Item item) {
+        String sql = "merge into shoppingcart using (values(cast(? as varchar(100)), " +
+                "cast(? as varchar(100)), cast(? as varchar(100)), cast(? as int), cast(? as double), cast(? as varchar(210)))) " +
+                "as line(cartid, name, type, quantity, priceperunit, linekey) " +
+                "on shoppingcart.cartid = line.cartid and shoppingcart.name is not distinct from line.name " +
+                "and shoppingcart.type is not distinct from line.type " +
+                "when matched then update set shoppingcart.quantity = shoppingcart.quantity + line.quantity " +
+                "when not matched then insert (cartid, name, type, quantity, priceperunit, linekey) " +
+                "values (line.cartid, line.name, line.type, line.quantity, line.priceperunit, line.linekey)";
+        connection.withSql(sql, () -> {
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                ps.setString(1, cartId);
+                ps.setString(2, item.getName());
+                ps.setString(3, item.getType().name());
+                ps.setInt(4, item.getQuantity());
+                ps.setDouble(5, item.getPricePerUnit());
+                ps.setString(6, lineKey(item.getName(), item.getType()));
+                try {
+                    ps.execute();
+                } catch (SQLIntegrityConstraintViolationException e) {
+                    // another connection inserted the line first; now the merge finds it
+                    connection.getConnection().rollback();
+                    ps.execute();
+                }
+
+                connection.getConnection().commit();
+            }
+            return null;
+        });
+    }
+
+    // The value of the uniquely indexed linekey column for a merged line. A null name
+    // gets no separator, so it cannot collide with an empty name.
+    static String lineKey(String name, ItemType type) {
+        return name == null ? type.name() : type.name() + "/" + name;
+    }
+
     @Override
     public List<Item> getItems() {
-        return connection.withSql(() -> {  // Executes SQL operations within the database connection
-            try (var ps = connection.getConnection().prepareStatement("select * from shoppingcart")) {  // Prepares the SQL query to select all invoices
+        touch();
+        String sql = "select * from shoppingcart where cartid = ?";
+        return connection.withSql(sql, () -> {  // Executes SQL operations within the database connection
+            try (var ps = connection.getConnection().prepareStatement(sql)) {  // Prepares the SQL query to select all invoices
+                ps.setString(1, cartId);  // Only this cart's lines
                 final var rs = ps.executeQuery();  // Executes the query and stores the result set
 
                 List<Item> ShoppingCart = new ArrayList<>();  // Creates a list to store all retrieved invoices
@@ -49,10 +127,131 @@ public class ShoppingCartAdaptor implements ShoppingCart {
         });
     }
 
+    @Override
+    public List<Item> linesOf(String name, ItemType type) {
+        touch();
+        String sql = "select * from shoppingcart where " + lineCondition(name);
+        return connection.withSql(sql, () -> {  // Reads just this product's lines through the (cartid, name, type) index
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                setLine(ps, 1, name, type);
+                final var rs = ps.executeQuery();
+
+                List<Item> lines = new ArrayList<>();
+                while (rs.next()) {
+                    lines.add(new Item(ItemType.valueOf(rs.getString("type")), rs.getString("name"),
+                            rs.getInt("quantity"), rs.getDouble("priceperunit")));
+                }
+                return lines;
+            }
+        });
+    }
+
+    @Override
+    public void remove(String name, ItemType type) {
+        touch();
+        String sql = "delete from shoppingcart where " + lineCondition(name);
+        connection.withSql(sql, () -> {  // Deletes just this product's lines, found through the (cartid, name, type) index
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                setLine(ps, 1, name, type);
+                ps.execute();
+
+                connection.getConnection().commit();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void updateQuantity(String name, ItemType type, int quantity) {
+        touch();
+        if (quantity <= 0) {
+            remove(name, type);
+            return;
+        }
+        String sql = "update shoppingcart set quantity = ? where " + lineCondition(name);
+        connection.withSql(sql, () -> {
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                ps.setInt(1, quantity);
+                setLine(ps, 2, name, type);
+                ps.execute();
+
+                connection.getConnection().commit();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void clear() {
+        touch();
+        String sql = "delete from shoppingcart where cartid = ?";
+        connection.withSql(sql, () -> {  // Unlike Database.resetDatabase this only touches this cart's rows
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                ps.setString(1, cartId);
+                ps.execute();
+
+                connection.getConnection().commit();
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public LineMode getLineMode() {
+        return lineMode;
+    }
+
+    // Deletes the rows of many carts with one batched statement, e.g. for carts that expired
+    public static void deleteCarts(Database connection, List<String> cartIds) {
+        if (cartIds.isEmpty())
+            return;
+        String sql = "delete from shoppingcart where cartid = ?";
+        connection.withSql(sql, () -> {
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                for (String cartId : cartIds) {
+                    ps.setString(1, cartId);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+
+                connection.getConnection().commit();
+            }
+            return null;
+        });
+    }
+
+    // "name = null" never matches, so items without a name need "is null"
+    private static String lineCondition(String name) {
+        return name == null ? "cartid = ? and name is null and type = ?" : "cartid = ? and name = ? and type = ?";
+    }
+
+    private void setLine(PreparedStatement ps, int index, String name, ItemType type) throws SQLException {
+        ps.setString(index++, cartId);
+        if (name != null)
+            ps.setString(index++, name);
+        ps.setString(index, type.name());
+    }
+
+    @Override
+    public CartAggregates aggregates() {
+        touch();
+        String sql = "select coalesce(sum(quantity * priceperunit), 0), count(*), " +
+                "coalesce(sum(case when type = 'ELECTRONIC' then 1 else 0 end), 0) from shoppingcart where cartid = ?";
+        return connection.withSql(sql, () -> {  // Lets the database compute every aggregate in one small result row
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
+                ps.setString(1, cartId);
+                final var rs = ps.executeQuery();
+                rs.next();
+                return new CartAggregates(rs.getDouble(1), rs.getInt(2), rs.getInt(3));
+            }
+        });
+    }
+
     @Override
     public int numberOfItems() {
-        return connection.withSql(() -> {
-            try(var ps = connection.getConnection().prepareStatement("select count(*) from shoppingcart")){
+        String sql = "select count(*) from shoppingcart";
+        return connection.withSql(sql, () -> {
+            try (var ps = connection.getConnection().prepareStatement(sql)) {
                 return ps.getFetchSize();
             }
         });
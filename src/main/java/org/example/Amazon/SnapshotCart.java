@@ -0,0 +1,6 @@
+package org.example.Amazon;
+
+// A cart that can hand out a read-only, point-in-time copy of itself.
+public interface SnapshotCart extends AggregatingCart {
+    AggregatingCart snapshot();
+}
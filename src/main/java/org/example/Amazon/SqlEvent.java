@@ -0,0 +1,22 @@
+package org.example.Amazon;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// One Database.withSql call, recorded by JFR when it takes longer than the threshold.
+@Name("org.example.Sql")
+@Label("SQL")
+@Category({"Shop", "Amazon"})
+@Description("A Database.withSql call")
+@Threshold("10 ms")
+@StackTrace(false)
+class SqlEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+}
@@ -1,27 +1,114 @@
 package org.example.Barnes;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 
-class BarnesAndNoble {
+public class BarnesAndNoble {
 
     private BookDatabase bookDatabase;
     private BuyBookProcess process;
+    private HotBookCache hotBooks;
 
 
     public BarnesAndNoble(BookDatabase bookDatabase, BuyBookProcess process) {
+        this(bookDatabase, process, null);
+    }
+
+    // hotBooks may be null; when set, every order line is counted towards the hot
+    // ISBNs and pinned books sell from their sharded stock
+    public BarnesAndNoble(BookDatabase bookDatabase, BuyBookProcess process, HotBookCache hotBooks) {
         this.bookDatabase = bookDatabase;
         this.process = process;
+        this.hotBooks = hotBooks;
+    }
+
+    // The book an order line sells: its pin's book when the pin is of the version this
+    // order reads, otherwise the catalog's. Null when the ISBN is unknown.
+    private Book lookUpLine(BookDatabase catalog, String ISBN) {
+        if (hotBooks != null) {
+            hotBooks.getHeavyHitters().record(ISBN);
+            HotBookCache.Pinned pinned = hotBooks.get(ISBN);
+            if (pinned != null && readsVersionOf(catalog, pinned))
+                return pinned.getBook();
+        }
+        return findByISBN(catalog, ISBN);
     }
 
-    private void retrieveBook(String ISBN, int quantity, PurchaseSummary purchaseSummary) {
-        Book book = bookDatabase.findByISBN(ISBN);
-        if (book.getQuantity() < quantity) {
-            purchaseSummary.addUnavailable(book, quantity - book.getQuantity());
-            quantity = book.getQuantity();
+    private void buyLine(String ISBN, Book book, int quantity, PurchaseSummary purchaseSummary) {
+        if (book == null) {
+            purchaseSummary.addUnknown(ISBN, quantity);
+            return;
         }
+        HotBookCache.Pinned pinned = hotBooks == null ? null : hotBooks.get(ISBN);
+        if (pinned != null)
+            sellPinned(pinned, book, quantity, purchaseSummary);
+        else
+            allocate(book, quantity, book.getQuantity(), purchaseSummary);
+    }
 
-        purchaseSummary.addToTotalPrice(quantity * book.getPrice());
-        process.buyBook(book, quantity);
+    // a pinned book sells from its sharded stock, whichever path the order came in by
+    private void sellPinned(HotBookCache.Pinned pinned, Book book, int quantity, PurchaseSummary purchaseSummary) {
+        int taken = pinned.getStock().take(quantity);
+        int bought = buyBook(book, taken);
+        if (bought < quantity)
+            purchaseSummary.addUnavailable(book, quantity - bought);
+        purchaseSummary.addToTotalPrice(bought * book.getPrice());
+    }
+
+    // whether the pinned book is the one this order's catalog version has
+    private static boolean readsVersionOf(BookDatabase catalog, HotBookCache.Pinned pinned) {
+        return !(catalog instanceof VersionedBookDatabase.Version)
+                || ((VersionedBookDatabase.Version) catalog).getVersion() == pinned.getVersion();
+    }
+
+    // buys up to the available stock and returns how much was actually bought.
+    // Only what was bought is charged; the rest of the line is unavailable.
+    private int allocate(Book book, int quantity, int available, PurchaseSummary purchaseSummary) {
+        int bought = buyBook(book, Math.min(quantity, available));
+        if (bought < quantity)
+            purchaseSummary.addUnavailable(book, quantity - bought);
+
+        purchaseSummary.addToTotalPrice(bought * book.getPrice());
+        return bought;
+    }
+
+    private Book findByISBN(BookDatabase catalog, String ISBN) {
+        BookLookupEvent event = new BookLookupEvent();
+        event.begin();
+        Book book = catalog.findByISBN(ISBN);
+        event.end();
+        if (event.shouldCommit()) {
+            event.isbn = ISBN;
+            event.found = book != null;
+            event.commit();
+        }
+        return book;
+    }
+
+    // returns how many were bought: what a PartialBuyBookProcess reports, otherwise all of them
+    private int buyBook(Book book, int quantity) {
+        BuyBookEvent event = new BuyBookEvent();
+        event.begin();
+        int bought = quantity;
+        if (process instanceof PartialBuyBookProcess)
+            bought = ((PartialBuyBookProcess) process).buyUpTo(book, quantity);
+        else
+            process.buyBook(book, quantity);
+        event.end();
+        if (event.shouldCommit()) {
+            event.isbn = book.getISBN();
+            event.quantity = bought;
+            event.commit();
+        }
+        return bought;
     }
 
     // get the total price in the cart.
@@ -29,9 +116,177 @@ class BarnesAndNoble {
         if(order==null)
             return null;
 
+        CheckoutEvent event = new CheckoutEvent();
+        event.begin();
+        // every line is looked up before anything is bought, so a lookup that fails or runs
+        // out of its latency budget leaves the stock alone; a bulk catalog gets one call
+        Map<String, Book> books = lookUpBooks(List.of(order));
         PurchaseSummary purchaseSummary = new PurchaseSummary();
-        for (String ISBN : order.keySet())
-            retrieveBook(ISBN, order.get(ISBN), purchaseSummary);
+        for (Map.Entry<String, Integer> line : order.entrySet())
+            buyLine(line.getKey(), books.get(line.getKey()), line.getValue(), purchaseSummary);
+        event.end();
+        if (event.shouldCommit()) {
+            event.orders = 1;
+            event.orderLines = order.size();
+            event.commit();
+        }
         return purchaseSummary;
     }
-}
\ No newline at end of file
+
+    // Same as getPriceForCart(Map) for an order held in a reusable context. The
+    // summary is the context's own. Lookups go one line at a time even for a
+    // BulkBookDatabase, because a bulk call would allocate its result map; they
+    // still all finish before the first purchase.
+    public PurchaseSummary getPriceForCart(CheckoutContext context) {
+        CheckoutEvent event = new CheckoutEvent();
+        event.begin();
+        BookDatabase catalog = catalog();
+        PurchaseSummary purchaseSummary = context.getSummary();
+        for (int line = 0; line < context.lineCount(); line++)
+            context.setBookAt(line, lookUpLine(catalog, context.isbnAt(line)));
+        for (int line = 0; line < context.lineCount(); line++)
+            buyLine(context.isbnAt(line), context.bookAt(line), context.quantityAt(line), purchaseSummary);
+        event.end();
+        if (event.shouldCommit()) {
+            event.orders = 1;
+            event.orderLines = context.lineCount();
+            event.commit();
+        }
+        return purchaseSummary;
+    }
+
+    // whether purchases report what they really bought, so concurrent fulfilment cannot oversell
+    boolean buysPartially() {
+        return process instanceof PartialBuyBookProcess;
+    }
+
+    // a versioned catalog is read once so the whole order sees the same prices,
+    // also when it is wrapped in a Bloom filter or hedged
+    private BookDatabase catalog() {
+        if (bookDatabase instanceof VersionedBookDatabase) {
+            VersionedBookDatabase.Version version = ((VersionedBookDatabase) bookDatabase).current();
+            if (version != null)
+                return version;
+        }
+        return bookDatabase;
+    }
+
+    // get the total price for every cart in the batch.
+    // Each distinct ISBN is looked up once, and stock is handed out to the orders
+    // in list order, so an earlier order always wins over a later one.
+    public List<PurchaseSummary> getPriceForCarts(List<Map<String, Integer>> orders) {
+        if(orders==null)
+            return null;
+
+        CheckoutEvent event = new CheckoutEvent();
+        event.begin();
+        List<PurchaseSummary> summaries = fulfil(orders, lookUpBooks(orders));
+        event.end();
+        if (event.shouldCommit()) {
+            event.orders = orders.size();
+            for (Map<String, Integer> order : orders)
+                event.orderLines += order == null ? 0 : order.size();
+            event.commit();
+        }
+        return summaries;
+    }
+
+    // looks up every distinct ISBN in the orders once. Unknown ISBNs are left out.
+    // Every order line counts towards the hot ISBNs, and pinned books come from
+    // their pin instead of the catalog.
+    Map<String, Book> lookUpBooks(List<Map<String, Integer>> orders) {
+        return lookUpBooks(orders, null);
+    }
+
+    // the same, but with an executor the single-ISBN lookups run on it side by side
+    // instead of one after another. A bulk catalog is still asked once. The calling
+    // thread's latency budget goes along with each lookup.
+    Map<String, Book> lookUpBooks(List<Map<String, Integer>> orders, Executor executor) {
+        BookDatabase catalog = catalog();
+        Set<String> isbns = new LinkedHashSet<>();
+        Map<String, Book> books = new HashMap<>();
+        for (Map<String, Integer> order : orders) {
+            if (order == null)
+                continue;
+            for (String ISBN : order.keySet()) {
+                if (hotBooks != null) {
+                    hotBooks.getHeavyHitters().record(ISBN);
+                    HotBookCache.Pinned pinned = hotBooks.get(ISBN);
+                    if (pinned != null && readsVersionOf(catalog, pinned)) {
+                        books.put(ISBN, pinned.getBook());
+                        continue;
+                    }
+                }
+                isbns.add(ISBN);
+            }
+        }
+        isbns.removeAll(books.keySet());
+        if (isbns.isEmpty())
+            return books;
+
+        if (catalog instanceof BulkBookDatabase) {
+            books.putAll(((BulkBookDatabase) catalog).findAllByISBN(isbns));
+            return books;
+        }
+        if (executor == null) {
+            for (String ISBN : isbns) {
+                Book book = findByISBN(catalog, ISBN);
+                if (book != null)
+                    books.put(ISBN, book);
+            }
+            return books;
+        }
+        Map<String, CompletableFuture<Book>> lookups = new LinkedHashMap<>();
+        for (String ISBN : isbns)
+            lookups.put(ISBN, CompletableFuture.supplyAsync(
+                    HedgedBookDatabase.withCurrentBudget(() -> findByISBN(catalog, ISBN)), executor));
+        for (Map.Entry<String, CompletableFuture<Book>> lookup : lookups.entrySet()) {
+            Book book;
+            try {
+                book = lookup.getValue().join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw e;
+            }
+            if (book != null)
+                books.put(lookup.getKey(), book);
+        }
+        return books;
+    }
+
+    // buys the orders from books that were already looked up, in list order.
+    List<PurchaseSummary> fulfil(List<Map<String, Integer>> orders, Map<String, Book> books) {
+        Map<String, Integer> remaining = new HashMap<>();
+        for (Map.Entry<String, Book> book : books.entrySet())
+            remaining.put(book.getKey(), book.getValue().getQuantity());
+
+        List<PurchaseSummary> summaries = new ArrayList<>(orders.size());
+        for (Map<String, Integer> order : orders) {
+            if (order == null) {
+                summaries.add(null);
+                continue;
+            }
+
+            PurchaseSummary purchaseSummary = new PurchaseSummary();
+            for (Map.Entry<String, Integer> line : order.entrySet()) {
+                String ISBN = line.getKey();
+                if (!books.containsKey(ISBN)) {
+                    purchaseSummary.addUnknown(ISBN, line.getValue());
+                    continue;
+                }
+                HotBookCache.Pinned pinned = hotBooks == null ? null : hotBooks.get(ISBN);
+                if (pinned != null) {
+                    sellPinned(pinned, books.get(ISBN), line.getValue(), purchaseSummary);
+                    continue;
+                }
+                int asked = Math.min(line.getValue(), remaining.get(ISBN));
+                int bought = allocate(books.get(ISBN), line.getValue(), remaining.get(ISBN), purchaseSummary);
+                // a process that sold fewer than asked has run out, whatever the lookup said
+                remaining.put(ISBN, bought < asked ? 0 : remaining.get(ISBN) - bought);
+            }
+            summaries.add(purchaseSummary);
+        }
+        return summaries;
+    }
+}
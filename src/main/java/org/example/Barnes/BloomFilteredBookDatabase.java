@@ -0,0 +1,74 @@
+package org.example.Barnes;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BookDatabase that answers "no such book" for ISBNs that were never added,
+ * without asking the catalog. Known ISBNs are kept in a Bloom filter, so a
+ * small, configurable share of unknown ISBNs still reaches the catalog.
+ * Call {@link #add(String)} whenever a book is added to the catalog.
+ */
+public class BloomFilteredBookDatabase implements VersionedBookDatabase {
+
+    private final BookDatabase bookDatabase;
+    private final BloomFilter knownIsbns;
+    private final LongAdder rejected = new LongAdder();
+
+    public BloomFilteredBookDatabase(BookDatabase bookDatabase, Collection<String> knownIsbns, double falsePositiveRate) {
+        // leave room for the catalog to double before the false-positive rate suffers
+        this(bookDatabase, knownIsbns, Math.max(2L * knownIsbns.size(), 1_024), falsePositiveRate);
+    }
+
+    public BloomFilteredBookDatabase(BookDatabase bookDatabase, Collection<String> knownIsbns,
+                                     long expectedCatalogSize, double falsePositiveRate) {
+        this.bookDatabase = bookDatabase;
+        this.knownIsbns = new BloomFilter(expectedCatalogSize, falsePositiveRate);
+        for (String ISBN : knownIsbns)
+            this.knownIsbns.add(ISBN);
+    }
+
+    public void add(String ISBN) {
+        knownIsbns.add(ISBN);
+    }
+
+    // returns null for a book that is not in the catalog
+    @Override
+    public Book findByISBN(String ISBN) {
+        return filter(bookDatabase, ISBN);
+    }
+
+    private Book filter(BookDatabase catalog, String ISBN) {
+        if (ISBN == null || !knownIsbns.mightContain(ISBN)) {
+            rejected.increment();
+            return null;
+        }
+        return catalog.findByISBN(ISBN);
+    }
+
+    // the wrapped catalog's current version, still behind the filter
+    @Override
+    public Version current() {
+        if (!(bookDatabase instanceof VersionedBookDatabase))
+            return null;
+        Version version = ((VersionedBookDatabase) bookDatabase).current();
+        if (version == null)
+            return null;
+        return new Version() {
+            @Override
+            public Book findByISBN(String ISBN) {
+                return filter(version, ISBN);
+            }
+
+            @Override
+            public long getVersion() {
+                return version.getVersion();
+            }
+        };
+    }
+
+    // how many lookups were answered without asking the catalog
+    public long getRejectedLookups() {
+        return rejected.sum();
+    }
+}
@@ -13,6 +13,10 @@ public class Book {
         this.amount = quantity;
     }
 
+    public String getISBN() {
+        return ISBN;
+    }
+
     public int getPrice() {
         return price;
     }
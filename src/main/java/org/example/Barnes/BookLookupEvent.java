@@ -0,0 +1,25 @@
+package org.example.Barnes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// One BookDatabase.findByISBN call made by BarnesAndNoble, recorded by JFR when it takes longer than the threshold.
+@Name("org.example.BookLookup")
+@Label("Book Lookup")
+@Category({"Shop", "Barnes"})
+@Description("A BookDatabase.findByISBN call")
+@Threshold("5 ms")
+@StackTrace(false)
+class BookLookupEvent extends Event {
+
+    @Label("ISBN")
+    String isbn;
+
+    @Label("Found")
+    boolean found;
+}
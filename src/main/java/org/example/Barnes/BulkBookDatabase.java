@@ -0,0 +1,12 @@
+package org.example.Barnes;
+
+import java.util.Collection;
+import java.util.Map;
+
+// A BookDatabase that can look up many ISBNs in one call, e.g. one round trip per
+// shard. BarnesAndNoble uses it for whole orders when the catalog supports it.
+public interface BulkBookDatabase extends BookDatabase {
+
+    // the books that were found, by ISBN; unknown ISBNs are left out
+    Map<String, Book> findAllByISBN(Collection<String> ISBNs);
+}
@@ -0,0 +1,25 @@
+package org.example.Barnes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// One BuyBookProcess.buyBook call made by BarnesAndNoble, recorded by JFR when it takes longer than the threshold.
+@Name("org.example.BuyBook")
+@Label("Buy Book")
+@Category({"Shop", "Barnes"})
+@Description("A BuyBookProcess.buyBook call")
+@Threshold("5 ms")
+@StackTrace(false)
+class BuyBookEvent extends Event {
+
+    @Label("ISBN")
+    String isbn;
+
+    @Label("Quantity")
+    int quantity;
+}
@@ -0,0 +1,81 @@
+package org.example.Barnes;
+
+import java.util.Arrays;
+
+/**
+ * A caller-owned order buffer plus the PurchaseSummary it is priced into, for
+ * {@link BarnesAndNoble#getPriceForCart(CheckoutContext)}. Reset it and reuse
+ * it for the next order: once its arrays have grown to the largest order seen,
+ * a checkout in which every book is known and in stock allocates nothing.
+ *
+ * A context is not thread-safe. {@link #forCurrentThread()} hands out one per
+ * thread. The summary belongs to the context and is overwritten by the next
+ * order, so copy out what you need before reusing it.
+ */
+public class CheckoutContext {
+
+    private static final ThreadLocal<CheckoutContext> perThread = ThreadLocal.withInitial(CheckoutContext::new);
+
+    private String[] isbns = new String[16];
+    private int[] quantities = new int[16];
+    // each line's book, filled in by the lookup phase of a checkout
+    private Book[] books = new Book[16];
+    private int lines;
+    private final PurchaseSummary summary = new PurchaseSummary();
+
+    // this thread's context, already reset
+    public static CheckoutContext forCurrentThread() {
+        return perThread.get().reset();
+    }
+
+    public CheckoutContext reset() {
+        Arrays.fill(isbns, 0, lines, null);
+        Arrays.fill(books, 0, lines, null);
+        lines = 0;
+        summary.reset();
+        return this;
+    }
+
+    // adding an ISBN that is already in the order adds to its quantity
+    public CheckoutContext add(String ISBN, int quantity) {
+        for (int i = 0; i < lines; i++) {
+            if (isbns[i].equals(ISBN)) {
+                quantities[i] += quantity;
+                return this;
+            }
+        }
+        if (lines == isbns.length) {
+            isbns = Arrays.copyOf(isbns, lines * 2);
+            quantities = Arrays.copyOf(quantities, lines * 2);
+            books = Arrays.copyOf(books, lines * 2);
+        }
+        isbns[lines] = ISBN;
+        quantities[lines] = quantity;
+        lines++;
+        return this;
+    }
+
+    public int lineCount() {
+        return lines;
+    }
+
+    public String isbnAt(int line) {
+        return isbns[line];
+    }
+
+    public int quantityAt(int line) {
+        return quantities[line];
+    }
+
+    Book bookAt(int line) {
+        return books[line];
+    }
+
+    void setBookAt(int line, Book book) {
+        books[line] = book;
+    }
+
+    public PurchaseSummary getSummary() {
+        return summary;
+    }
+}
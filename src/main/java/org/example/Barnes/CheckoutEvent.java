@@ -0,0 +1,26 @@
+package org.example.Barnes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+// One getPriceForCart or getPriceForCarts call, recorded by JFR when it takes longer than the threshold.
+@Name("org.example.Checkout")
+@Label("Checkout")
+@Category({"Shop", "Barnes"})
+@Description("A BarnesAndNoble checkout of one or more orders")
+@Threshold("20 ms")
+@StackTrace(false)
+class CheckoutEvent extends Event {
+
+    @Label("Orders")
+    int orders;
+
+    @Label("Order Lines")
+    @Description("Lines over all orders in the checkout")
+    int orderLines;
+}
@@ -0,0 +1,129 @@
+package org.example.Barnes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Streaming tracker of the most requested ISBNs: a Count-Min Sketch estimates
+ * how often each ISBN was seen and a fixed-size table keeps the top K.
+ *
+ * <p>{@link #record(String)} does not allocate: the sketch is a flat array of
+ * counters indexed from the string's cached hash code, and the top-K table is
+ * two preallocated arrays that are only locked when an ISBN is frequent enough
+ * to enter it. Call {@link #decay()} periodically so yesterday's launch makes
+ * room for today's.
+ */
+public class HeavyHitters {
+
+    private static final long[] SEEDS = {0x9e3779b97f4a7c15L, 0xc2b2ae3d27d4eb4fL, 0x165667b19e3779f9L, 0xd6e8feb86659fd93L};
+
+    private final AtomicLongArray sketch;
+    private final int widthMask;
+    private final String[] topKeys;
+    private final long[] topCounts;
+    // smallest count in a full top-K table; lets record() skip the lock for cold ISBNs
+    private volatile long admissionThreshold;
+
+    public HeavyHitters(int topK) {
+        this(topK, 1 << 14);
+    }
+
+    public HeavyHitters(int topK, int width) {
+        if (Integer.bitCount(width) != 1)
+            throw new IllegalArgumentException("width must be a power of two");
+        this.sketch = new AtomicLongArray(SEEDS.length * width);
+        this.widthMask = width - 1;
+        this.topKeys = new String[topK];
+        this.topCounts = new long[topK];
+    }
+
+    public void record(String ISBN) {
+        int hash = ISBN.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int column = (int) (mix(hash, SEEDS[row]) & widthMask);
+            estimate = Math.min(estimate, sketch.incrementAndGet(row * (widthMask + 1) + column));
+        }
+        if (estimate >= admissionThreshold)
+            offer(ISBN, estimate);
+    }
+
+    public long estimate(String ISBN) {
+        int hash = ISBN.hashCode();
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int column = (int) (mix(hash, SEEDS[row]) & widthMask);
+            estimate = Math.min(estimate, sketch.get(row * (widthMask + 1) + column));
+        }
+        return estimate;
+    }
+
+    // the current top K, most frequent first
+    public synchronized List<String> hotIsbns() {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < topKeys.length; i++) {
+            if (topKeys[i] != null)
+                order.add(i);
+        }
+        order.sort((a, b) -> Long.compare(topCounts[b], topCounts[a]));
+
+        List<String> hot = new ArrayList<>(order.size());
+        for (int i : order)
+            hot.add(topKeys[i]);
+        return hot;
+    }
+
+    // halves every count
+    public synchronized void decay() {
+        for (int i = 0; i < sketch.length(); i++)
+            sketch.set(i, sketch.get(i) >>> 1);
+        for (int i = 0; i < topCounts.length; i++)
+            topCounts[i] >>>= 1;
+        admissionThreshold = full() ? minimum() : 0;
+    }
+
+    private synchronized void offer(String ISBN, long estimate) {
+        int slot = -1;
+        for (int i = 0; i < topKeys.length; i++) {
+            if (ISBN.equals(topKeys[i])) {
+                topCounts[i] = estimate;
+                return;
+            }
+            if (slot < 0 && topKeys[i] == null)
+                slot = i;
+        }
+        if (slot < 0) {
+            slot = 0;
+            for (int i = 1; i < topCounts.length; i++) {
+                if (topCounts[i] < topCounts[slot])
+                    slot = i;
+            }
+            if (topCounts[slot] >= estimate)
+                return;
+        }
+        topKeys[slot] = ISBN;
+        topCounts[slot] = estimate;
+        admissionThreshold = full() ? minimum() : 0;
+    }
+
+    private boolean full() {
+        for (String key : topKeys) {
+            if (key == null)
+                return false;
+        }
+        return true;
+    }
+
+    private long minimum() {
+        long minimum = Long.MAX_VALUE;
+        for (long count : topCounts)
+            minimum = Math.min(minimum, count);
+        return minimum;
+    }
+
+    private static long mix(int hash, long seed) {
+        long h = (hash ^ seed) * 0xff51afd7ed558ccdL;
+        return h ^ (h >>> 32);
+    }
+}
@@ -0,0 +1,274 @@
+package org.example.Barnes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * BookDatabase that sends a second copy of a lookup when the first has been
+ * running for longer than most lookups take, and returns whichever copy
+ * answers first. The wait before hedging is a percentile of recent lookup
+ * times, so only the slow tail is sent twice.
+ *
+ * Lookups made inside {@link #withinBudget} also stop waiting when the budget
+ * runs out and throw {@link LatencyBudgetExceededException}. The budget belongs
+ * to the thread; see {@link #withCurrentBudget} for work moved to an executor. Copies still
+ * running when a lookup returns or gives up are cancelled.
+ */
+public class HedgedBookDatabase implements VersionedBookDatabase {
+
+    private static final int SAMPLES = 1_024;
+    // how often the hedge delay is recomputed from the samples
+    private static final int RECOMPUTE_EVERY = 64;
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private final BookDatabase bookDatabase;
+    private final Executor executor;
+    private final double percentile;
+    private final long minHedgeDelayNanos;
+    private final long[] samples = new long[SAMPLES];
+    private int sampleCount;
+    private volatile long hedgeDelayNanos;
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    // percentile is between 0 and 1, e.g. 0.95 hedges the slowest 5% of lookups
+    public HedgedBookDatabase(BookDatabase bookDatabase, Executor executor, double percentile, Duration minHedgeDelay) {
+        if (percentile <= 0 || percentile >= 1)
+            throw new IllegalArgumentException("percentile must be between 0 and 1");
+        this.bookDatabase = bookDatabase;
+        this.executor = executor;
+        this.percentile = percentile;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.hedgeDelayNanos = minHedgeDelayNanos;
+    }
+
+    // runs the work with a deadline shared by every lookup it makes on this thread.
+    // A nested budget can only make the deadline earlier.
+    public static <T> T withinBudget(Duration budget, Supplier<T> work) {
+        Long outer = deadline.get();
+        long own = System.nanoTime() + budget.toNanos();
+        deadline.set(outer != null && outer - own < 0 ? outer : own);
+        try {
+            return work.get();
+        } finally {
+            if (outer == null)
+                deadline.remove();
+            else
+                deadline.set(outer);
+        }
+    }
+
+    // Wraps work so that, run on another thread, its lookups share the budget of the
+    // thread that wrapped it. The deadline is a ThreadLocal, so work handed to an
+    // executor without this runs with no budget at all.
+    public static <T> Supplier<T> withCurrentBudget(Supplier<T> work) {
+        Long end = deadline.get();
+        if (end == null)
+            return work;
+        return () -> {
+            Long outer = deadline.get();
+            deadline.set(end);
+            try {
+                return work.get();
+            } finally {
+                if (outer == null)
+                    deadline.remove();
+                else
+                    deadline.set(outer);
+            }
+        };
+    }
+
+    @Override
+    public Book findByISBN(String ISBN) {
+        return lookup(bookDatabase, ISBN);
+    }
+
+    // the wrapped catalog's current version; its lookups are hedged and budgeted the same way
+    @Override
+    public Version current() {
+        if (!(bookDatabase instanceof VersionedBookDatabase))
+            return null;
+        Version version = ((VersionedBookDatabase) bookDatabase).current();
+        if (version == null)
+            return null;
+        return new Version() {
+            @Override
+            public Book findByISBN(String ISBN) {
+                return lookup(version, ISBN);
+            }
+
+            @Override
+            public long getVersion() {
+                return version.getVersion();
+            }
+        };
+    }
+
+    private Book lookup(BookDatabase catalog, String ISBN) {
+        Long budgetEnd = deadline.get();
+        long delay = hedgeDelayNanos;
+        if (budgetEnd != null)
+            delay = Math.min(delay, Math.max(0, budgetEnd - System.nanoTime()));
+        Lookup lookup = new Lookup(System.nanoTime() + delay);
+        try {
+            attempt(catalog, ISBN, lookup, false);
+            try {
+                return lookup.answer.get(delay, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if ((budgetEnd == null || budgetEnd - System.nanoTime() > 0) && lookup.hedge()) {
+                    hedged.increment();
+                    attempt(catalog, ISBN, lookup, true);
+                } else {
+                    lookup.noHedge();
+                }
+            } catch (ExecutionException e) {
+                throw unwrap(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            return await(ISBN, lookup.answer, budgetEnd);
+        } finally {
+            // whatever ended the wait, copies still running are no longer needed
+            lookup.cancel();
+        }
+    }
+
+    private Book await(String ISBN, CompletableFuture<Book> answer, Long budgetEnd) {
+        try {
+            if (budgetEnd == null)
+                return answer.get();
+            return answer.get(Math.max(0, budgetEnd - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new LatencyBudgetExceededException("Latency budget ran out looking up " + ISBN);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void attempt(BookDatabase catalog, String ISBN, Lookup lookup, boolean hedge) {
+        FutureTask<Void> copy = new FutureTask<>(() -> {
+            long start = System.nanoTime();
+            try {
+                Book book = catalog.findByISBN(ISBN);
+                // a cancelled copy stopped early, so its time says nothing about the catalog
+                if (!Thread.currentThread().isInterrupted())
+                    record(System.nanoTime() - start);
+                lookup.answered(book, hedge);
+            } catch (RuntimeException e) {
+                lookup.failed(e);
+            }
+            return null;
+        });
+        lookup.started(copy);
+        executor.execute(copy);
+    }
+
+    // The copies sent for one lookup. The first answer wins; the lookup only fails once
+    // every copy has failed and no hedge can follow. A copy that fails before the hedge
+    // delay fails the lookup at once; one that fails later leaves the decision to the
+    // caller, which hedges if the budget allows.
+    private final class Lookup {
+        private final CompletableFuture<Book> answer = new CompletableFuture<>();
+        private final List<Future<?>> copies = new ArrayList<>(2);
+        private final long hedgeAt;
+        private int running;
+        private boolean mayHedge = true;
+        private RuntimeException failure;
+
+        private Lookup(long hedgeAt) {
+            this.hedgeAt = hedgeAt;
+        }
+
+        private synchronized void started(Future<?> copy) {
+            copies.add(copy);
+            running++;
+        }
+
+        // counts the win before handing over the answer, so the counter is exact once the caller sees it
+        private synchronized void answered(Book book, boolean hedge) {
+            running--;
+            if (answer.isDone())
+                return;
+            if (hedge)
+                hedgeWins.increment();
+            answer.complete(book);
+        }
+
+        private synchronized void failed(RuntimeException e) {
+            running--;
+            failure = e;
+            if (mayHedge && System.nanoTime() - hedgeAt < 0)
+                mayHedge = false;
+            settle();
+        }
+
+        // true when the caller should send a hedge, false when the lookup is already decided
+        private synchronized boolean hedge() {
+            mayHedge = false;
+            return !answer.isDone();
+        }
+
+        private synchronized void noHedge() {
+            mayHedge = false;
+            settle();
+        }
+
+        private void settle() {
+            if (running == 0 && !mayHedge && failure != null)
+                answer.completeExceptionally(failure);
+        }
+
+        private synchronized void cancel() {
+            for (Future<?> copy : copies)
+                copy.cancel(true);
+        }
+    }
+
+    private synchronized void record(long latencyNanos) {
+        samples[sampleCount++ % SAMPLES] = latencyNanos;
+        if (sampleCount % RECOMPUTE_EVERY != 0)
+            return;
+        long[] sorted = Arrays.copyOf(samples, Math.min(sampleCount, SAMPLES));
+        Arrays.sort(sorted);
+        long tail = sorted[(int) (percentile * (sorted.length - 1))];
+        hedgeDelayNanos = Math.max(minHedgeDelayNanos, tail);
+        if (sampleCount >= 2 * SAMPLES)
+            sampleCount -= SAMPLES;
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException)
+            return (RuntimeException) e.getCause();
+        return new RuntimeException(e.getCause());
+    }
+
+    public Duration getHedgeDelay() {
+        return Duration.ofNanos(hedgeDelayNanos);
+    }
+
+    // how many lookups sent a second copy
+    public long getHedgedLookups() {
+        return hedged.sum();
+    }
+
+    // how many of those were answered by the second copy
+    public long getHedgeWins() {
+        return hedgeWins.sum();
+    }
+}
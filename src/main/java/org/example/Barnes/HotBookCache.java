@@ -0,0 +1,101 @@
+package org.example.Barnes;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pins the books that {@link HeavyHitters} reports as hot: each pinned book is
+ * loaded once and sells from a {@link ShardedStock} instead of a catalog lookup
+ * per order line. While a book is pinned, every checkout path sells it from that
+ * one counter. Purchases still go through BuyBookProcess, so the catalog stays
+ * the source of truth: every refresh reads the hot books again and re-pins the
+ * ones whose price or stock changed there, and a book that cools down is simply
+ * unpinned and read from the catalog again next time.
+ */
+public class HotBookCache {
+
+    private final HeavyHitters heavyHitters;
+    private final BookDatabase bookDatabase;
+    private final Map<String, Pinned> pinned = new ConcurrentHashMap<>();
+
+    public static class Pinned {
+        private final Book book;
+        // moved forward by refresh() while the newer versions still have the same book
+        private volatile long version;
+        private final ShardedStock stock;
+
+        Pinned(Book book, long version) {
+            this.book = book;
+            this.version = version;
+            this.stock = new ShardedStock(book.getQuantity());
+        }
+
+        public Book getBook() {
+            return book;
+        }
+
+        // the catalog version the book was read from, -1 for a catalog without versions
+        public long getVersion() {
+            return version;
+        }
+
+        public ShardedStock getStock() {
+            return stock;
+        }
+
+        // true while the catalog still has the book as it was pinned
+        boolean isCurrent(Book latest) {
+            return latest.getPrice() == book.getPrice() && latest.getQuantity() == book.getQuantity();
+        }
+    }
+
+    public HotBookCache(HeavyHitters heavyHitters, BookDatabase bookDatabase) {
+        this.heavyHitters = heavyHitters;
+        this.bookDatabase = bookDatabase;
+    }
+
+    public HeavyHitters getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    // the pinned entry for this ISBN, or null if it is not hot
+    public Pinned get(String ISBN) {
+        return pinned.get(ISBN);
+    }
+
+    // Pins the current hot ISBNs and unpins the ones that cooled down. Meant to be
+    // called from a background timer, not per request.
+    public void refresh() {
+        List<String> hot = heavyHitters.hotIsbns();
+        Set<String> keep = new HashSet<>(hot);
+        pinned.keySet().retainAll(keep);
+        // every hot book is read from the same catalog version
+        BookDatabase catalog = bookDatabase;
+        long version = -1;
+        if (bookDatabase instanceof VersionedBookDatabase) {
+            VersionedBookDatabase.Version current = ((VersionedBookDatabase) bookDatabase).current();
+            if (current != null) {
+                catalog = current;
+                version = current.getVersion();
+            }
+        }
+        for (String ISBN : hot) {
+            // books that stay hot are read again too, so restocks and new prices show up
+            Book book = catalog.findByISBN(ISBN);
+            Pinned current = pinned.get(ISBN);
+            if (book == null)
+                pinned.remove(ISBN);
+            else if (current == null || !current.isCurrent(book))
+                pinned.put(ISBN, new Pinned(book, version));
+            else
+                current.version = version;
+        }
+    }
+
+    public Set<String> pinnedIsbns() {
+        return pinned.keySet();
+    }
+}
@@ -0,0 +1,265 @@
+package org.example.Barnes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * One shard of a {@link ShardedInventory}: holds the stock of its share of the
+ * ISBNs and serves it to routers over a loopback socket.
+ *
+ * Every request is an op byte followed by its arguments, written with
+ * DataOutputStream; strings are modified UTF-8 and counts are ints.
+ * <pre>
+ * GET    epoch, n, n x isbn                 -> current, n, n x (found [, price, quantity])
+ * BUY    epoch, isbn, quantity              -> current, quantity actually bought
+ * PUT    epoch, n, n x (isbn, price, quantity) -> current, n
+ * LIST                                      -> n, n x (isbn, price, quantity)
+ * TAKE   n, n x isbn                        -> n, n x (found [, price, quantity])
+ * RING   epoch, n, n x (host, port)         -> installed
+ * </pre>
+ *
+ * The shard keeps the newest ring a router told it about with RING, numbered by
+ * its epoch. GET, BUY and PUT carry the epoch of the sender's ring; when that is
+ * older, the shard does nothing and replies false followed by its ring (epoch, n,
+ * n x (host, port)), so the router can adopt it and send the request to the
+ * shard that now owns the ISBN. Otherwise it replies true and the op's result.
+ * RING replies the same way when the shard already has a ring at least as new.
+ * TAKE removes the books and returns them in one step, for moving them to another
+ * shard.
+ *
+ * Run as a main class it starts one shard process, prints "port &lt;port&gt;" and
+ * stops when its standard input is closed, so it never outlives its parent.
+ */
+public class InventoryShardServer implements AutoCloseable {
+
+    static final byte GET = 1;
+    static final byte BUY = 2;
+    static final byte PUT = 3;
+    static final byte LIST = 4;
+    static final byte TAKE = 5;
+    static final byte RING = 6;
+
+    private final ServerSocket serverSocket;
+    private final Map<String, Book> stock = new ConcurrentHashMap<>();
+    // requests check the epoch and run under the read lock, so none from an older
+    // ring runs after RING has installed a newer one and replied
+    private final ReadWriteLock ringLock = new ReentrantReadWriteLock();
+    private int epoch;
+    private List<InetSocketAddress> members = List.of();
+
+    // port 0 picks a free port
+    public InventoryShardServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::accept, "inventory-shard-" + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public static void main(String[] args) throws IOException {
+        InventoryShardServer server = new InventoryShardServer(args.length > 0 ? Integer.parseInt(args[0]) : 0);
+        System.out.println("port " + server.getAddress().getPort());
+        System.out.flush();
+        while (System.in.read() != -1) {
+            // the parent keeps stdin open for as long as this shard should live
+        }
+        server.close();
+    }
+
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) serverSocket.getLocalSocketAddress();
+    }
+
+    public int size() {
+        return stock.size();
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Thread connection = new Thread(() -> serve(socket), "inventory-shard-connection");
+                connection.setDaemon(true);
+                connection.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed())
+                    throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (true) {
+                byte op = in.readByte();
+                switch (op) {
+                    case GET -> get(in, out);
+                    case BUY -> buy(in, out);
+                    case PUT -> put(in, out);
+                    case LIST -> list(out);
+                    case TAKE -> take(in, out);
+                    case RING -> ring(in, out);
+                    default -> throw new IOException("Unknown inventory op " + op);
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // the router closed the connection
+        } catch (IOException e) {
+            if (!serverSocket.isClosed())
+                throw new UncheckedIOException(e);
+        }
+    }
+
+    private void get(DataInputStream in, DataOutputStream out) throws IOException {
+        int epoch = in.readInt();
+        List<String> isbns = readIsbns(in);
+        ringLock.readLock().lock();
+        try {
+            if (!current(epoch, out))
+                return;
+            out.writeInt(isbns.size());
+            for (String ISBN : isbns)
+                writeBook(stock.get(ISBN), out);
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    private void buy(DataInputStream in, DataOutputStream out) throws IOException {
+        int epoch = in.readInt();
+        String ISBN = in.readUTF();
+        int quantity = in.readInt();
+        ringLock.readLock().lock();
+        try {
+            if (current(epoch, out))
+                out.writeInt(buy(ISBN, quantity));
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    private int buy(String ISBN, int quantity) {
+        int[] bought = new int[1];
+        stock.computeIfPresent(ISBN, (isbn, book) -> {
+            bought[0] = Math.max(0, Math.min(quantity, book.getQuantity()));
+            return new Book(isbn, book.getPrice(), book.getQuantity() - bought[0]);
+        });
+        return bought[0];
+    }
+
+    private void put(DataInputStream in, DataOutputStream out) throws IOException {
+        int epoch = in.readInt();
+        int count = in.readInt();
+        List<Book> books = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            books.add(new Book(in.readUTF(), in.readInt(), in.readInt()));
+        ringLock.readLock().lock();
+        try {
+            if (!current(epoch, out))
+                return;
+            for (Book book : books)
+                stock.put(book.getISBN(), book);
+            out.writeInt(count);
+        } finally {
+            ringLock.readLock().unlock();
+        }
+    }
+
+    private void list(DataOutputStream out) throws IOException {
+        List<Book> books = new ArrayList<>(stock.values());
+        out.writeInt(books.size());
+        for (Book book : books) {
+            out.writeUTF(book.getISBN());
+            out.writeInt(book.getPrice());
+            out.writeInt(book.getQuantity());
+        }
+    }
+
+    // a purchase either happens before the book is taken and moves with it, or finds no book
+    private void take(DataInputStream in, DataOutputStream out) throws IOException {
+        List<String> isbns = readIsbns(in);
+        out.writeInt(isbns.size());
+        for (String ISBN : isbns)
+            writeBook(stock.remove(ISBN), out);
+    }
+
+    private void ring(DataInputStream in, DataOutputStream out) throws IOException {
+        int epoch = in.readInt();
+        int count = in.readInt();
+        List<InetSocketAddress> members = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            members.add(new InetSocketAddress(InetAddress.getByName(in.readUTF()), in.readInt()));
+        ringLock.writeLock().lock();
+        try {
+            if (epoch <= this.epoch) {
+                out.writeBoolean(false);
+                writeRing(out);
+                return;
+            }
+            this.epoch = epoch;
+            this.members = members;
+            out.writeBoolean(true);
+        } finally {
+            ringLock.writeLock().unlock();
+        }
+    }
+
+    // true when the sender's ring is not older than this shard's; otherwise sends this shard's ring
+    private boolean current(int epoch, DataOutputStream out) throws IOException {
+        if (epoch >= this.epoch) {
+            out.writeBoolean(true);
+            return true;
+        }
+        out.writeBoolean(false);
+        writeRing(out);
+        return false;
+    }
+
+    private void writeRing(DataOutputStream out) throws IOException {
+        out.writeInt(epoch);
+        out.writeInt(members.size());
+        for (InetSocketAddress member : members) {
+            out.writeUTF(member.getAddress().getHostAddress());
+            out.writeInt(member.getPort());
+        }
+    }
+
+    private static List<String> readIsbns(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<String> isbns = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            isbns.add(in.readUTF());
+        return isbns;
+    }
+
+    private static void writeBook(Book book, DataOutputStream out) throws IOException {
+        out.writeBoolean(book != null);
+        if (book != null) {
+            out.writeInt(book.getPrice());
+            out.writeInt(book.getQuantity());
+        }
+    }
+}
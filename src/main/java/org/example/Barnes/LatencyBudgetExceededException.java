@@ -0,0 +1,14 @@
+package org.example.Barnes;
+
+/**
+ * Thrown by {@link HedgedBookDatabase} when a lookup cannot finish inside the
+ * latency budget set with {@link HedgedBookDatabase#withinBudget}.
+ */
+public class LatencyBudgetExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public LatencyBudgetExceededException(String message) {
+        super(message);
+    }
+}
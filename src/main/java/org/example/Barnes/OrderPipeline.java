@@ -0,0 +1,313 @@
+package org.example.Barnes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Streaming front for {@link BarnesAndNoble}. Orders go in through
+ * {@link #submit}, and one PurchaseSummary per order comes out to the
+ * subscribers of this publisher.
+ *
+ * Orders are grouped into micro-batches, the batch's ISBNs are looked up once,
+ * side by side on a lookup pool of {@code lookupParallelism * LOOKUP_FAN_OUT}
+ * threads, and then the batch is bought the same way as
+ * {@link BarnesAndNoble#getPriceForCarts}.
+ * A batch is cut when it is full or when no more orders are waiting, so a
+ * quiet pipeline does not hold orders back.
+ *
+ * Every stage has a bounded buffer and only asks upstream for more work when it
+ * has room, so a slow buyBook makes {@link #submit} block rather than letting
+ * memory grow. Batches may be looked up and fulfilled out of order, but the
+ * summaries are put back in order before they are published: the n-th summary
+ * is for the n-th order submitted (or offered successfully).
+ *
+ * Concurrent fulfilment workers each hand out stock from their own lookup, so
+ * more than one needs a {@link PartialBuyBookProcess}, which tells the worker
+ * how many books it really got.
+ *
+ * Lookups run on the pipeline's own threads, so a latency budget set with
+ * {@link HedgedBookDatabase#withinBudget} around {@link #submit} does not
+ * reach them.
+ */
+public class OrderPipeline implements Flow.Publisher<PurchaseSummary>, AutoCloseable {
+
+    // lookups in flight per batch being looked up
+    private static final int LOOKUP_FAN_OUT = 8;
+
+    private final BarnesAndNoble barnesAndNoble;
+    private final ExecutorService executor;
+    private final ThreadPoolExecutor lookups;
+    private final SubmissionPublisher<Map<String, Integer>> orders;
+    private final SubmissionPublisher<PurchaseSummary> summaries;
+    // orders queued or being queued but not yet taken by the batcher. Counted before they
+    // are queued, so the batcher never sees it drop below zero and cut a batch short.
+    private final AtomicInteger waiting = new AtomicInteger();
+    // sent when an order that was counted could not be queued and nothing else is waiting,
+    // so the batcher does not hold a partial batch for it
+    private static final Map<String, Integer> FLUSH = new HashMap<>();
+
+    // one micro-batch on its way through the stages; each stage fills in its part
+    private static final class Batch {
+        final long sequence;
+        final List<Map<String, Integer>> orders;
+        Map<String, Book> books;
+        List<PurchaseSummary> summaries;
+
+        Batch(long sequence, List<Map<String, Integer>> orders) {
+            this.sequence = sequence;
+            this.orders = orders;
+        }
+    }
+
+    public OrderPipeline(BarnesAndNoble barnesAndNoble, int bufferSize, int maxBatchSize,
+                         int lookupParallelism, int fulfilmentParallelism) {
+        if (fulfilmentParallelism > 1 && !barnesAndNoble.buysPartially())
+            throw new IllegalArgumentException("More than one fulfilment worker needs a PartialBuyBookProcess");
+        this.barnesAndNoble = barnesAndNoble;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "order-pipeline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int lookupThreads = Math.max(1, lookupParallelism) * LOOKUP_FAN_OUT;
+        this.lookups = new ThreadPoolExecutor(lookupThreads, lookupThreads, 1, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "order-pipeline-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lookups.allowCoreThreadTimeOut(true);
+        this.orders = new SubmissionPublisher<>(executor, bufferSize);
+        SubmissionPublisher<Batch> batches = new SubmissionPublisher<>(executor, bufferSize);
+        SubmissionPublisher<Batch> lookedUp = new SubmissionPublisher<>(executor, bufferSize);
+        SubmissionPublisher<Batch> fulfilled = new SubmissionPublisher<>(executor, bufferSize);
+        this.summaries = new SubmissionPublisher<>(executor, bufferSize);
+
+        orders.subscribe(new Batcher(batches, maxBatchSize));
+        batches.subscribe(new Stage<>(lookedUp, lookupParallelism, batch -> {
+            batch.books = barnesAndNoble.lookUpBooks(batch.orders, lookups);
+            return List.of(batch);
+        }));
+        lookedUp.subscribe(new Stage<>(fulfilled, fulfilmentParallelism, batch -> {
+            batch.summaries = barnesAndNoble.fulfil(batch.orders, batch.books);
+            return List.of(batch);
+        }));
+        fulfilled.subscribe(new Resequencer(bufferSize));
+    }
+
+    // blocks while the pipeline is full
+    public void submit(Map<String, Integer> order) {
+        waiting.incrementAndGet();
+        try {
+            orders.submit(order);
+        } catch (RuntimeException e) {
+            notQueued();
+            throw e;
+        }
+    }
+
+    // returns false when the order could not be queued within the timeout
+    public boolean offer(Map<String, Integer> order, Duration timeout) {
+        waiting.incrementAndGet();
+        boolean queued = false;
+        try {
+            queued = orders.offer(order, timeout.toNanos(), TimeUnit.NANOSECONDS, (subscriber, dropped) -> false) >= 0;
+            return queued;
+        } finally {
+            if (!queued)
+                notQueued();
+        }
+    }
+
+    private void notQueued() {
+        if (waiting.decrementAndGet() > 0)
+            return;
+        try {
+            // if the buffer is full the batcher has orders to come and needs no nudge
+            orders.offer(FLUSH, (subscriber, dropped) -> false);
+        } catch (IllegalStateException closed) {
+            // closed meanwhile; onComplete flushes the last batch
+        }
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super PurchaseSummary> subscriber) {
+        summaries.subscribe(subscriber);
+    }
+
+    // no more orders; subscribers see onComplete once the queued orders are done
+    @Override
+    public void close() {
+        orders.close();
+    }
+
+    // stops the worker threads without waiting for queued orders
+    public void shutdownNow() {
+        orders.close();
+        executor.shutdownNow();
+        lookups.shutdownNow();
+    }
+
+    // collects orders into batches of up to maxBatchSize
+    private final class Batcher implements Flow.Subscriber<Map<String, Integer>> {
+        private final SubmissionPublisher<Batch> batches;
+        private final int maxBatchSize;
+        private Flow.Subscription subscription;
+        private List<Map<String, Integer>> batch = new ArrayList<>();
+        private long nextSequence;
+
+        Batcher(SubmissionPublisher<Batch> batches, int maxBatchSize) {
+            this.batches = batches;
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(maxBatchSize);
+        }
+
+        @Override
+        public void onNext(Map<String, Integer> order) {
+            if (order == FLUSH) {
+                if (!batch.isEmpty() && waiting.get() <= 0) {
+                    int taken = batch.size();
+                    flush();
+                    subscription.request(taken);
+                }
+                subscription.request(1);
+                return;
+            }
+            batch.add(order);
+            if (waiting.decrementAndGet() <= 0 || batch.size() >= maxBatchSize) {
+                int taken = batch.size();
+                flush();
+                subscription.request(taken);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            batches.closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            if (!batch.isEmpty())
+                flush();
+            batches.close();
+        }
+
+        private void flush() {
+            batches.submit(new Batch(nextSequence++, batch));
+            batch = new ArrayList<>();
+        }
+    }
+
+    // Publishes the summaries of each batch in batch order. A batch that finishes early waits
+    // here for the ones before it; there are at most as many of those as fulfilment workers.
+    private final class Resequencer implements Flow.Subscriber<Batch> {
+        private final int bufferSize;
+        private final Map<Long, Batch> early = new HashMap<>();
+        private Flow.Subscription subscription;
+        private long next;
+
+        Resequencer(int bufferSize) {
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(bufferSize);
+        }
+
+        @Override
+        public void onNext(Batch batch) {
+            early.put(batch.sequence, batch);
+            Batch ready;
+            while ((ready = early.remove(next)) != null) {
+                next++;
+                for (PurchaseSummary summary : ready.summaries)
+                    summaries.submit(summary);
+            }
+            // always ask for the next one: the batch this one waits for may be behind it
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            summaries.closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            summaries.close();
+        }
+    }
+
+    // runs work on up to parallelism items at a time and publishes what it returns
+    private final class Stage<I, O> implements Flow.Subscriber<I> {
+        private final SubmissionPublisher<O> output;
+        private final int parallelism;
+        private final Function<I, List<O>> work;
+        private final AtomicInteger running = new AtomicInteger();
+        private volatile boolean complete;
+        private Flow.Subscription subscription;
+
+        Stage(SubmissionPublisher<O> output, int parallelism, Function<I, List<O>> work) {
+            this.output = output;
+            this.parallelism = parallelism;
+            this.work = work;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(parallelism);
+        }
+
+        @Override
+        public void onNext(I item) {
+            running.incrementAndGet();
+            executor.execute(() -> {
+                try {
+                    for (O result : work.apply(item))
+                        output.submit(result);
+                } catch (RuntimeException e) {
+                    subscription.cancel();
+                    output.closeExceptionally(e);
+                    return;
+                } finally {
+                    if (running.decrementAndGet() == 0 && complete)
+                        output.close();
+                }
+                subscription.request(1);
+            });
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            output.closeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+            if (running.get() == 0)
+                output.close();
+        }
+    }
+}
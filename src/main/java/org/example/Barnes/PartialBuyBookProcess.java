@@ -0,0 +1,15 @@
+package org.example.Barnes;
+
+// A BuyBookProcess that checks the stock itself and can buy fewer books than asked,
+// e.g. when another process bought the same book after it was looked up.
+// BarnesAndNoble charges for what it reports and counts the rest as unavailable.
+public interface PartialBuyBookProcess extends BuyBookProcess {
+
+    // buys up to amount and returns how many were actually bought
+    int buyUpTo(Book book, int amount);
+
+    @Override
+    default void buyBook(Book book, int amount) {
+        buyUpTo(book, amount);
+    }
+}
@@ -7,9 +7,18 @@ import java.util.Map;
 public class PurchaseSummary {
     private int totalPrice;
     private Map<Book, Integer> unavailable;
+    private Map<String, Integer> unknown;
 
     public PurchaseSummary() {
         this.unavailable = new HashMap<>();
+        this.unknown = new HashMap<>();
+        this.totalPrice = 0;
+    }
+
+    // empties the summary for reuse; clearing keeps the maps' tables, so nothing is allocated
+    void reset() {
+        this.unavailable.clear();
+        this.unknown.clear();
         this.totalPrice = 0;
     }
 
@@ -17,6 +26,11 @@ public class PurchaseSummary {
         this.unavailable.put(book, unavailableQty);
     }
 
+    // an ordered ISBN that is not in the catalog, with the quantity asked for
+    public void addUnknown(String ISBN, int quantity){
+        this.unknown.put(ISBN, quantity);
+    }
+
     public void addToTotalPrice(int valueToAdd) {
         totalPrice += valueToAdd;
     }
@@ -28,4 +42,8 @@ public class PurchaseSummary {
     public Map<Book, Integer> getUnavailable() {
         return Collections.unmodifiableMap(unavailable);
     }
-}
\ No newline at end of file
+
+    public Map<String, Integer> getUnknown() {
+        return Collections.unmodifiableMap(unknown);
+    }
+}
@@ -0,0 +1,409 @@
+package org.example.Barnes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Catalog and stock spread over several {@link InventoryShardServer} processes.
+ * ISBNs are placed on a consistent-hash ring with many virtual nodes per shard,
+ * so adding a shard only moves the ISBNs that now belong to it.
+ *
+ * Used as both the BookDatabase and the BuyBookProcess of a BarnesAndNoble:
+ * an order's lookups go out as one request per shard, sent to all shards at
+ * once, and each purchase goes to the shard that owns the book and reports
+ * how many it could actually sell.
+ *
+ * Several routers may share a set of shards. Each router numbers its ring with an
+ * epoch. A shard refuses requests from an older ring than the newest one it was
+ * told about and hands back that ring, so every router follows a shard added
+ * through another one. Shards are added through one router at a time. While
+ * stock moves to a new shard, the other routers can briefly find a moving book
+ * missing, but never sell it twice.
+ */
+public class ShardedInventory implements BulkBookDatabase, PartialBuyBookProcess, AutoCloseable {
+
+    private static final int VIRTUAL_NODES = 128;
+
+    private final TreeMap<Long, Shard> ring = new TreeMap<>();
+    private final List<Shard> shards = new ArrayList<>();
+    private int epoch;
+    // lookups and purchases share the ring; adding a shard waits for them and moves stock alone
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "sharded-inventory");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ShardedInventory(List<InetSocketAddress> shardAddresses) {
+        for (InetSocketAddress address : shardAddresses)
+            join(new Shard(address));
+    }
+
+    // Adds a shard and moves to it the books it now owns. Returns how many books moved.
+    public int addShard(InetSocketAddress address) {
+        Shard added = new Shard(address);
+        lock.writeLock().lock();
+        try {
+            announce(added);
+            join(added);
+            int moved = 0;
+            for (Shard shard : shards) {
+                if (shard == added)
+                    continue;
+                List<String> moving = new ArrayList<>();
+                for (Book book : shard.list()) {
+                    if (shardFor(book.getISBN()) == added)
+                        moving.add(book.getISBN());
+                }
+                if (moving.isEmpty())
+                    continue;
+                // taken off the old shard in one step, so what is put is what it had left
+                List<Book> taken = shard.take(moving);
+                added.put(epoch, taken);
+                moved += taken.size();
+            }
+            return moved;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Tells every shard, the added one too, about the ring with the added shard before
+    // any stock moves, so from then on they turn away routers on the old ring. If a
+    // shard already knows a newer ring, that ring is adopted and announced with the
+    // added shard instead.
+    private void announce(Shard added) {
+        while (true) {
+            if (isMember(added.address)) {
+                added.close();
+                throw new IllegalArgumentException(added.address + " is already a shard");
+            }
+            List<InetSocketAddress> members = new ArrayList<>();
+            for (Shard shard : shards)
+                members.add(shard.address);
+            members.add(added.address);
+            try {
+                for (Shard shard : shards)
+                    shard.ring(epoch + 1, members);
+                added.ring(epoch + 1, members);
+                epoch++;
+                return;
+            } catch (StaleRingException e) {
+                adopt(e.ring);
+            }
+        }
+    }
+
+    // adds or replaces books, each on the shard that owns it
+    public void put(Collection<Book> books) {
+        withRing(() -> {
+            Map<Shard, List<Book>> byShard = new HashMap<>();
+            for (Book book : books)
+                byShard.computeIfAbsent(shardFor(book.getISBN()), shard -> new ArrayList<>()).add(book);
+            byShard.forEach((shard, owned) -> shard.put(epoch, owned));
+            return null;
+        });
+    }
+
+    @Override
+    public Book findByISBN(String ISBN) {
+        return findAllByISBN(List.of(ISBN)).get(ISBN);
+    }
+
+    @Override
+    public Map<String, Book> findAllByISBN(Collection<String> ISBNs) {
+        return withRing(() -> {
+            Map<Shard, List<String>> byShard = new LinkedHashMap<>();
+            for (String ISBN : ISBNs)
+                byShard.computeIfAbsent(shardFor(ISBN), shard -> new ArrayList<>()).add(ISBN);
+
+            Map<String, Book> books = new HashMap<>();
+            int ringEpoch = epoch;
+            if (byShard.size() == 1) {
+                Map.Entry<Shard, List<String>> only = byShard.entrySet().iterator().next();
+                only.getKey().get(ringEpoch, only.getValue(), books);
+                return books;
+            }
+            List<CompletableFuture<Map<String, Book>>> replies = new ArrayList<>();
+            byShard.forEach((shard, isbns) -> replies.add(CompletableFuture.supplyAsync(() -> {
+                Map<String, Book> found = new HashMap<>();
+                shard.get(ringEpoch, isbns, found);
+                return found;
+            }, executor)));
+            for (CompletableFuture<Map<String, Book>> reply : replies)
+                books.putAll(reply.join());
+            return books;
+        });
+    }
+
+    // the owning shard decides how many are left, so concurrent buyers can never oversell
+    @Override
+    public int buyUpTo(Book book, int amount) {
+        return withRing(() -> shardFor(book.getISBN()).buy(epoch, book.getISBN(), amount));
+    }
+
+    // number of books on each shard, in the order the shards were added
+    public List<Integer> shardSizes() {
+        lock.readLock().lock();
+        try {
+            List<Integer> sizes = new ArrayList<>();
+            for (Shard shard : shards)
+                sizes.add(shard.list().size());
+            return sizes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sends requests on the current ring. When a shard knows a newer ring, nothing was
+    // done on that shard; the ring is adopted and the requests are sent again.
+    private <T> T withRing(Supplier<T> requests) {
+        while (true) {
+            Ring newer;
+            lock.readLock().lock();
+            try {
+                return requests.get();
+            } catch (StaleRingException e) {
+                newer = e.ring;
+            } catch (CompletionException e) {
+                if (!(e.getCause() instanceof StaleRingException))
+                    throw e;
+                newer = ((StaleRingException) e.getCause()).ring;
+            } finally {
+                lock.readLock().unlock();
+            }
+            adopt(newer);
+        }
+    }
+
+    private void adopt(Ring newer) {
+        lock.writeLock().lock();
+        try {
+            if (newer.epoch <= epoch)
+                return;
+            for (InetSocketAddress address : newer.members) {
+                if (!isMember(address))
+                    join(new Shard(address));
+            }
+            epoch = newer.epoch;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean isMember(InetSocketAddress address) {
+        for (Shard shard : shards) {
+            if (key(shard.address).equals(key(address)))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        for (Shard shard : shards)
+            shard.close();
+    }
+
+    private void join(Shard shard) {
+        shards.add(shard);
+        for (int i = 0; i < VIRTUAL_NODES; i++)
+            ring.put(BloomFilter.hash(key(shard.address) + "#" + i), shard);
+    }
+
+    // the same for every router, however it was given the address
+    private static String key(InetSocketAddress address) {
+        return address.getAddress().getHostAddress() + ":" + address.getPort();
+    }
+
+    private Shard shardFor(String ISBN) {
+        Map.Entry<Long, Shard> owner = ring.ceilingEntry(BloomFilter.hash(ISBN));
+        return (owner != null ? owner : ring.firstEntry()).getValue();
+    }
+
+    // a shard's view of the ring: which shards it has and its epoch
+    private static final class Ring {
+        private final int epoch;
+        private final List<InetSocketAddress> members;
+
+        Ring(int epoch, List<InetSocketAddress> members) {
+            this.epoch = epoch;
+            this.members = members;
+        }
+    }
+
+    // a shard turned a request away because it knows a newer ring
+    private static final class StaleRingException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Ring ring;
+
+        StaleRingException(Ring ring) {
+            super("Shard knows ring epoch " + ring.epoch, null, false, false);
+            this.ring = ring;
+        }
+    }
+
+    // one connection to a shard process; requests on it are sent one at a time
+    private static final class Shard {
+        private final InetSocketAddress address;
+        private final Socket socket;
+        private final DataInputStream in;
+        private final DataOutputStream out;
+
+        Shard(InetSocketAddress address) {
+            this.address = address;
+            try {
+                this.socket = new Socket(address.getAddress(), address.getPort());
+                socket.setTcpNoDelay(true);
+                this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot reach inventory shard " + address, e);
+            }
+        }
+
+        synchronized void get(int epoch, List<String> isbns, Map<String, Book> found) {
+            try {
+                out.writeByte(InventoryShardServer.GET);
+                out.writeInt(epoch);
+                writeIsbns(isbns);
+                checkRing();
+                readBooks(isbns, found);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized int buy(int epoch, String ISBN, int quantity) {
+            try {
+                out.writeByte(InventoryShardServer.BUY);
+                out.writeInt(epoch);
+                out.writeUTF(ISBN);
+                out.writeInt(quantity);
+                checkRing();
+                return in.readInt();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized void put(int epoch, List<Book> books) {
+            try {
+                out.writeByte(InventoryShardServer.PUT);
+                out.writeInt(epoch);
+                out.writeInt(books.size());
+                for (Book book : books) {
+                    out.writeUTF(book.getISBN());
+                    out.writeInt(book.getPrice());
+                    out.writeInt(book.getQuantity());
+                }
+                checkRing();
+                in.readInt();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized List<Book> list() {
+            try {
+                out.writeByte(InventoryShardServer.LIST);
+                out.flush();
+                int count = in.readInt();
+                List<Book> books = new ArrayList<>(count);
+                for (int i = 0; i < count; i++)
+                    books.add(new Book(in.readUTF(), in.readInt(), in.readInt()));
+                return books;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // removes the books and returns the ones the shard had, as they were when removed
+        synchronized List<Book> take(List<String> isbns) {
+            try {
+                out.writeByte(InventoryShardServer.TAKE);
+                writeIsbns(isbns);
+                out.flush();
+                Map<String, Book> taken = new LinkedHashMap<>();
+                readBooks(isbns, taken);
+                return new ArrayList<>(taken.values());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        synchronized void ring(int epoch, List<InetSocketAddress> members) {
+            try {
+                out.writeByte(InventoryShardServer.RING);
+                out.writeInt(epoch);
+                out.writeInt(members.size());
+                for (InetSocketAddress member : members) {
+                    out.writeUTF(member.getAddress().getHostAddress());
+                    out.writeInt(member.getPort());
+                }
+                checkRing();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void writeIsbns(List<String> isbns) throws IOException {
+            out.writeInt(isbns.size());
+            for (String ISBN : isbns)
+                out.writeUTF(ISBN);
+        }
+
+        private void readBooks(List<String> isbns, Map<String, Book> found) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                if (in.readBoolean())
+                    found.put(isbns.get(i), new Book(isbns.get(i), in.readInt(), in.readInt()));
+            }
+        }
+
+        // sends the request and reads whether the shard took it or knows a newer ring
+        private void checkRing() throws IOException {
+            out.flush();
+            if (in.readBoolean())
+                return;
+            int epoch = in.readInt();
+            int count = in.readInt();
+            List<InetSocketAddress> members = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+                members.add(new InetSocketAddress(InetAddress.getByName(in.readUTF()), in.readInt()));
+            throw new StaleRingException(new Ring(epoch, members));
+        }
+
+        synchronized void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
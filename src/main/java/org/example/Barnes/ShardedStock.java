@@ -0,0 +1,52 @@
+package org.example.Barnes;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Stock counter for one hot book, split into shards so that concurrent buyers
+ * mostly update different cache lines. A buyer takes from its own shard first
+ * and only visits the others when that one runs dry.
+ */
+public class ShardedStock {
+
+    // one counter per 64-byte cache line
+    private static final int STRIDE = 8;
+
+    private final AtomicLongArray shards;
+    private final int shardCount;
+
+    public ShardedStock(int quantity) {
+        this(quantity, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedStock(int quantity, int shardCount) {
+        this.shardCount = shardCount;
+        this.shards = new AtomicLongArray(shardCount * STRIDE);
+        for (int i = 0; i < shardCount; i++)
+            shards.set(i * STRIDE, quantity / shardCount + (i < quantity % shardCount ? 1 : 0));
+    }
+
+    // takes up to quantity units and returns how many were taken
+    public int take(int quantity) {
+        int home = (int) (Thread.currentThread().getId() % shardCount);
+        int taken = 0;
+        for (int i = 0; i < shardCount && taken < quantity; i++) {
+            int index = ((home + i) % shardCount) * STRIDE;
+            long available;
+            long grab;
+            do {
+                available = shards.get(index);
+                grab = Math.min(available, quantity - taken);
+            } while (grab > 0 && !shards.compareAndSet(index, available, available - grab));
+            taken += grab;
+        }
+        return taken;
+    }
+
+    public int available() {
+        long total = 0;
+        for (int i = 0; i < shardCount; i++)
+            total += shards.get(i * STRIDE);
+        return (int) total;
+    }
+}
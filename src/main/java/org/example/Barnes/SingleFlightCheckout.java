@@ -0,0 +1,130 @@
+package org.example.Barnes;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Idempotent front for {@link BarnesAndNoble#getPriceForCart}: checkouts that
+ * carry the same idempotency key run once. Copies that arrive while the first
+ * is still running wait for it and get the same PurchaseSummary; copies that
+ * arrive later get the stored result, as long as it is still retained. Nothing
+ * is bought twice either way.
+ */
+public class SingleFlightCheckout {
+
+    private final BarnesAndNoble barnesAndNoble;
+    private final int maxRetained;
+    private final long retentionNanos;
+    private final LongSupplier clock;
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    // completed checkouts, oldest first
+    private final LinkedHashMap<String, Flight> completed = new LinkedHashMap<>();
+
+    private static final class Flight {
+        final Map<String, Integer> order;
+        final CompletableFuture<PurchaseSummary> result = new CompletableFuture<>();
+        long completedAt;
+
+        Flight(Map<String, Integer> order) {
+            this.order = order;
+        }
+    }
+
+    public SingleFlightCheckout(BarnesAndNoble barnesAndNoble, int maxRetained, Duration retention) {
+        this(barnesAndNoble, maxRetained, retention, System::nanoTime);
+    }
+
+    public SingleFlightCheckout(BarnesAndNoble barnesAndNoble, int maxRetained, Duration retention, LongSupplier clock) {
+        this.barnesAndNoble = barnesAndNoble;
+        this.maxRetained = maxRetained;
+        this.retentionNanos = retention.toNanos();
+        this.clock = clock;
+    }
+
+    // Reusing a key for a different order is a client bug and throws IllegalArgumentException.
+    public PurchaseSummary checkout(String idempotencyKey, Map<String, Integer> order) {
+        if (order == null)
+            return null;
+        Map<String, Integer> copy = new HashMap<>(order);
+
+        Flight done = retained(idempotencyKey);
+        if (done != null)
+            return await(done, copy);
+
+        Flight mine = new Flight(copy);
+        Flight running = inFlight.putIfAbsent(idempotencyKey, mine);
+        if (running != null)
+            return await(running, copy);
+
+        try {
+            // it may have finished between the first look and putIfAbsent
+            done = retained(idempotencyKey);
+            if (done != null) {
+                // callers that joined mine sent this order, so they get what the retained flight says about it
+                if (done.order.equals(copy))
+                    mine.result.complete(done.result.join());
+                else
+                    mine.result.completeExceptionally(reusedKey());
+                return await(done, copy);
+            }
+            mine.result.complete(barnesAndNoble.getPriceForCart(copy));
+            retain(idempotencyKey, mine);
+        } catch (RuntimeException e) {
+            // failures are not retained, so a retry runs again
+            mine.result.completeExceptionally(e);
+        } finally {
+            inFlight.remove(idempotencyKey, mine);
+        }
+        return await(mine, copy);
+    }
+
+    public synchronized int retainedCount() {
+        return completed.size();
+    }
+
+    private static PurchaseSummary await(Flight flight, Map<String, Integer> order) {
+        if (!flight.order.equals(order))
+            throw reusedKey();
+        try {
+            return flight.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private static IllegalArgumentException reusedKey() {
+        return new IllegalArgumentException("Idempotency key was already used for a different order");
+    }
+
+    private synchronized Flight retained(String idempotencyKey) {
+        evictExpired();
+        return completed.get(idempotencyKey);
+    }
+
+    private synchronized void retain(String idempotencyKey, Flight flight) {
+        flight.completedAt = clock.getAsLong();
+        completed.put(idempotencyKey, flight);
+        evictExpired();
+        while (completed.size() > maxRetained) {
+            Iterator<String> oldest = completed.keySet().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+    }
+
+    private void evictExpired() {
+        long now = clock.getAsLong();
+        Iterator<Flight> oldest = completed.values().iterator();
+        while (oldest.hasNext() && now - oldest.next().completedAt > retentionNanos)
+            oldest.remove();
+    }
+}
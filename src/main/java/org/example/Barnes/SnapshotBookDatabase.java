@@ -0,0 +1,97 @@
+package org.example.Barnes;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory catalog published as immutable, numbered versions.
+ *
+ * <p>Readers take the current version with one volatile read and keep using
+ * it for the whole order, so a bulk repricing never changes prices halfway
+ * through a checkout and never makes a reader wait. Writers build the next
+ * version from a copy of the current one and swap it in; writers are
+ * serialized among themselves. An old version is ordinary garbage once the
+ * last order holding it finishes.
+ */
+public class SnapshotBookDatabase implements VersionedBookDatabase {
+
+    private volatile Catalog current;
+
+    public static final class Catalog implements VersionedBookDatabase.Version {
+        private final long version;
+        private final Map<String, Book> books;
+
+        private Catalog(long version, Map<String, Book> books) {
+            this.version = version;
+            this.books = Collections.unmodifiableMap(books);
+        }
+
+        @Override
+        public Book findByISBN(String ISBN) {
+            return books.get(ISBN);
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        public int size() {
+            return books.size();
+        }
+    }
+
+    public SnapshotBookDatabase(Collection<Book> books) {
+        Map<String, Book> initial = new HashMap<>();
+        for (Book book : books)
+            initial.put(book.getISBN(), book);
+        this.current = new Catalog(1, initial);
+    }
+
+    @Override
+    public Catalog current() {
+        return current;
+    }
+
+    @Override
+    public Book findByISBN(String ISBN) {
+        return current.findByISBN(ISBN);
+    }
+
+    // Adds or replaces these books in a new version and publishes it.
+    public synchronized Catalog publish(Collection<Book> books) {
+        Map<String, Book> next = new HashMap<>(current.books);
+        for (Book book : books)
+            next.put(book.getISBN(), book);
+        return swap(next);
+    }
+
+    // Sets new prices and stock levels for existing books in a new version and publishes it.
+    // ISBNs that are not in the catalog are ignored.
+    public synchronized Catalog update(Map<String, Integer> prices, Map<String, Integer> quantities) {
+        Map<String, Book> next = new HashMap<>(current.books);
+        for (Map.Entry<String, Book> entry : next.entrySet()) {
+            String ISBN = entry.getKey();
+            if (prices.containsKey(ISBN) || quantities.containsKey(ISBN)) {
+                Book book = entry.getValue();
+                entry.setValue(new Book(ISBN, prices.getOrDefault(ISBN, book.getPrice()),
+                        quantities.getOrDefault(ISBN, book.getQuantity())));
+            }
+        }
+        return swap(next);
+    }
+
+    public synchronized Catalog remove(Collection<String> isbns) {
+        Map<String, Book> next = new HashMap<>(current.books);
+        next.keySet().removeAll(isbns);
+        return swap(next);
+    }
+
+    private Catalog swap(Map<String, Book> books) {
+        Catalog next = new Catalog(current.version + 1, books);
+        current = next;
+        return next;
+    }
+}
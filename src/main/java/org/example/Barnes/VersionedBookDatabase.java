@@ -0,0 +1,13 @@
+package org.example.Barnes;
+
+// A catalog that publishes numbered versions, so a whole order can be read from one of them.
+public interface VersionedBookDatabase extends BookDatabase {
+
+    // The catalog as of its latest version. Decorators return a view of the version
+    // they wrap, or null when the catalog they wrap has no versions.
+    Version current();
+
+    interface Version extends BookDatabase {
+        long getVersion();
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.Server;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Cost.DeliveryPrice;
+import org.example.Amazon.Cost.ExtraCostForElectronics;
+import org.example.Amazon.Cost.RegularCost;
+import org.example.Amazon.Database;
+import org.example.Amazon.ShoppingCartAdaptor;
+import org.example.Barnes.BarnesAndNoble;
+import org.example.Barnes.Book;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Closed-loop load generator for {@link ShopServer}. Starts a server with an
+ * in-memory cart and catalog on an ephemeral port, runs {@code clients}
+ * concurrent callers for a fixed time and prints throughput and latency
+ * percentiles.
+ *
+ * <p>Usage: {@code LoadGenerator [clients] [seconds] [maxInFlight]}
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+
+        Map<String, Book> catalog = new HashMap<>();
+        for (int i = 0; i < 1_000; i++)
+            catalog.put("isbn-" + i, new Book("isbn-" + i, 10 + i % 40, Integer.MAX_VALUE));
+
+        Database database = new Database();
+        database.resetDatabase();
+        Amazon amazon = new Amazon(new ShoppingCartAdaptor(database),
+                List.of(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics()));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog::get, (book, amount) -> { });
+
+        ShopServer server = new ShopServer(amazon, barnesAndNoble, 0, maxInFlight);
+        server.start();
+        try {
+            Report report = run("http://127.0.0.1:" + server.getPort(), clients, Duration.ofSeconds(seconds));
+            System.out.println(report);
+        } finally {
+            server.stop();
+            database.close();
+        }
+    }
+
+    public static Report run(String baseUrl, int clients, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        List<Future<Recorder>> results = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++)
+            results.add(workers.submit(() -> drive(client, baseUrl, deadline)));
+
+        long[] latencies = new long[0];
+        int rejected = 0;
+        int failed = 0;
+        for (Future<Recorder> result : results) {
+            Recorder recorder = result.get();
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + recorder.count);
+            System.arraycopy(recorder.latencies, 0, latencies, offset, recorder.count);
+            rejected += recorder.rejected;
+            failed += recorder.failed;
+        }
+        workers.shutdown();
+
+        Arrays.sort(latencies);
+        return new Report(latencies, rejected, failed, duration);
+    }
+
+    // one client: a mix of 20% add-to-cart, 40% quote and 40% checkout calls
+    private static Recorder drive(HttpClient client, String baseUrl, long deadline) {
+        Recorder recorder = new Recorder();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            int pick = random.nextInt(10);
+            HttpRequest request;
+            if (pick < 2) {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/cart/items?type=OTHER&name=item"
+                        + random.nextInt(100) + "&quantity=1&price=2.5"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build();
+            } else if (pick < 6) {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/cart/quote")).GET().build();
+            } else {
+                request = HttpRequest.newBuilder(URI.create(baseUrl + "/checkout?isbn-" + random.nextInt(1_000)
+                        + "=1&isbn-" + random.nextInt(1_000) + "=2"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build();
+            }
+
+            long start = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status == 503)
+                    recorder.rejected++;
+                else if (status != 200)
+                    recorder.failed++;
+                else
+                    recorder.record(System.nanoTime() - start);
+            } catch (Exception e) {
+                recorder.failed++;
+            }
+        }
+        return recorder;
+    }
+
+    private static class Recorder {
+        private long[] latencies = new long[1 << 16];
+        private int count;
+        private int rejected;
+        private int failed;
+
+        void record(long nanos) {
+            if (count == latencies.length)
+                latencies = Arrays.copyOf(latencies, count * 2);
+            latencies[count++] = nanos;
+        }
+    }
+
+    public static class Report {
+        private final long[] sortedLatencies;
+        private final int rejected;
+        private final int failed;
+        private final Duration duration;
+
+        Report(long[] sortedLatencies, int rejected, int failed, Duration duration) {
+            this.sortedLatencies = sortedLatencies;
+            this.rejected = rejected;
+            this.failed = failed;
+            this.duration = duration;
+        }
+
+        public double throughput() {
+            return sortedLatencies.length / (duration.toNanos() / 1e9);
+        }
+
+        public double percentileMillis(double percentile) {
+            if (sortedLatencies.length == 0)
+                return 0;
+            int index = (int) Math.ceil(percentile / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(index, 0)] / 1e6;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d rejected=%d failed=%d throughput=%,.0f req/s p50=%.2fms p99=%.2fms max=%.2fms",
+                    sortedLatencies.length, rejected, failed, throughput(),
+                    percentileMillis(50), percentileMillis(99), percentileMillis(100));
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.Server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Item;
+import org.example.Barnes.BarnesAndNoble;
+import org.example.Barnes.PurchaseSummary;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Small embedded HTTP front end for the cart and checkout.
+ *
+ * <pre>
+ * POST /cart/items?type=OTHER&amp;name=Book&amp;quantity=1&amp;price=9.5   add to cart
+ * GET  /cart/quote                                             Amazon.calculate()
+ * POST /checkout?978-0=2&amp;978-1=1                                 getPriceForCart()
+ * </pre>
+ *
+ * Every request runs on its own virtual thread when the JVM has them (JDK 21+),
+ * otherwise on a cached platform thread pool. At most {@code maxInFlight}
+ * requests are served at once; the rest are turned away with 503 straight away
+ * instead of queueing up behind the slow ones.
+ *
+ * Started with {@code -Dshop.warmup=N}, the server first runs {@link Warmup}
+ * for N iterations, so the first real requests do not pay for class loading
+ * and compilation.
+ */
+public class ShopServer {
+
+    public static final String WARMUP_PROPERTY = "shop.warmup";
+
+    private final Amazon amazon;
+    private final BarnesAndNoble barnesAndNoble;
+    private final Semaphore admission;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    public ShopServer(Amazon amazon, BarnesAndNoble barnesAndNoble, int port, int maxInFlight) throws IOException {
+        this.amazon = amazon;
+        this.barnesAndNoble = barnesAndNoble;
+        this.admission = new Semaphore(maxInFlight);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = newRequestExecutor();
+
+        server.createContext("/cart/items", admitted("POST", this::addToCart));
+        server.createContext("/cart/quote", admitted("GET", this::quote));
+        server.createContext("/checkout", admitted("POST", this::checkout));
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        start(Integer.getInteger(WARMUP_PROPERTY, 0));
+    }
+
+    // runs the warm-up before taking requests; 0 skips it
+    public void start(int warmupIterations) {
+        if (warmupIterations > 0)
+            Warmup.run(warmupIterations);
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private String addToCart(Map<String, String> params) {
+        amazon.addToCart(new Item(ItemType.valueOf(params.get("type")), params.get("name"),
+                Integer.parseInt(params.get("quantity")), Double.parseDouble(params.get("price"))));
+        return "";
+    }
+
+    private String quote(Map<String, String> params) {
+        return Double.toString(amazon.calculate());
+    }
+
+    private String checkout(Map<String, String> params) {
+        Map<String, Integer> order = new LinkedHashMap<>();
+        for (Map.Entry<String, String> line : params.entrySet())
+            order.put(line.getKey(), Integer.parseInt(line.getValue()));
+
+        PurchaseSummary summary = barnesAndNoble.getPriceForCart(order);
+        int unavailable = 0;
+        for (int quantity : summary.getUnavailable().values())
+            unavailable += quantity;
+        return "total=" + summary.getTotalPrice() + "\nunavailable=" + unavailable;
+    }
+
+    private interface Endpoint {
+        String handle(Map<String, String> params);
+    }
+
+    private HttpHandler admitted(String method, Endpoint endpoint) {
+        return exchange -> {
+            try {
+                drain(exchange.getRequestBody());
+                if (!exchange.getRequestMethod().equals(method)) {
+                    respond(exchange, 405, "");
+                    return;
+                }
+                if (!admission.tryAcquire()) {
+                    exchange.getResponseHeaders().set("Retry-After", "1");
+                    respond(exchange, 503, "busy");
+                    return;
+                }
+                try {
+                    respond(exchange, 200, endpoint.handle(parseQuery(exchange.getRequestURI().getRawQuery())));
+                } catch (IllegalArgumentException | NullPointerException e) {
+                    respond(exchange, 400, String.valueOf(e.getMessage()));
+                } catch (RuntimeException e) {
+                    respond(exchange, 500, String.valueOf(e.getMessage()));
+                } finally {
+                    admission.release();
+                }
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new LinkedHashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty())
+            return params;
+
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        body.readAllBytes();
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() only exists from JDK 21, and this
+    // project still compiles for 17, so look it up at runtime.
+    private static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+}
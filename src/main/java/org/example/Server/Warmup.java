@@ -0,0 +1,84 @@
+package org.example.Server;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Cost.DeliveryPrice;
+import org.example.Amazon.Cost.ExtraCostForElectronics;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.PriceRule;
+import org.example.Amazon.Cost.RegularCost;
+import org.example.Amazon.Database;
+import org.example.Amazon.InMemoryShoppingCart;
+import org.example.Amazon.Item;
+import org.example.Amazon.PersistenceProvider;
+import org.example.Amazon.ShoppingCartAdaptor;
+import org.example.Barnes.BarnesAndNoble;
+import org.example.Barnes.Book;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Runs the pricing and checkout paths on throwaway data so a fresh instance has
+ * loaded its classes and compiled the hot methods before the first real request.
+ * Nothing touches the real cart database: the database path uses its own
+ * in-memory provider, and the checkout path uses a catalog that lives in a map.
+ *
+ * Run as a main class it is also the training run for the AppCDS archive
+ * (see the appcds profile in pom.xml).
+ */
+public final class Warmup {
+
+    private static final List<PriceRule> RULES = List.of(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics());
+
+    private Warmup() {
+    }
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        long start = System.nanoTime();
+        run(iterations);
+        System.out.printf("warm-up of %,d iterations took %d ms%n", iterations, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    // returns a checksum of the prices so the work cannot be optimised away
+    public static double run(int iterations) {
+        double checksum = 0;
+
+        InMemoryShoppingCart memoryCart = new InMemoryShoppingCart();
+        Amazon inMemory = new Amazon(memoryCart, RULES);
+        Database database = new Database(PersistenceProvider.inMemory("warmup"));
+        ShoppingCartAdaptor databaseCart = new ShoppingCartAdaptor(database, "warmup");
+        Amazon persisted = new Amazon(databaseCart, RULES);
+
+        Map<String, Book> catalog = new HashMap<>();
+        for (int i = 0; i < 16; i++)
+            catalog.put("warmup-" + i, new Book("warmup-" + i, 10 + i, 1_000));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog::get, (book, amount) -> { });
+
+        try {
+            for (int i = 0; i < iterations; i++) {
+                Item item = new Item(i % 2 == 0 ? ItemType.ELECTRONIC : ItemType.OTHER, "item-" + i % 8, 1 + i % 3, 9.99);
+                memoryCart.add(item);
+                checksum += inMemory.calculate();
+                if (i % 8 == 7)
+                    memoryCart.clear();
+
+                // the database round trip is far slower, so it gets fewer iterations
+                if (i % 16 == 0) {
+                    databaseCart.add(item);
+                    checksum += persisted.calculate();
+                    if (i % 128 == 0)
+                        databaseCart.clear();
+                }
+
+                Map<String, Integer> order = Map.of("warmup-" + i % 16, 1, "warmup-" + (i + 5) % 16, 2, "unknown", 1);
+                checksum += barnesAndNoble.getPriceForCart(order).getTotalPrice();
+            }
+        } finally {
+            databaseCart.clear();
+            database.close();
+        }
+        return checksum;
+    }
+}
@@ -403,4 +403,179 @@ class AmazonIntegrationTest {
 
         assertThat(shoppingCart.getItems()).hasSize(3);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("structural-based")
+    void testAggregatesFromDatabase() {
+        //Test: one query answers every aggregate
+        ShoppingCartAdaptor adaptor = new ShoppingCartAdaptor(database);
+        assertThat(adaptor.aggregates().getLineCount()).isEqualTo(0);
+        assertThat(adaptor.aggregates().getSubtotal()).isEqualTo(0.0);
+
+        adaptor.add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 1200.0));
+        adaptor.add(new Item(ItemType.OTHER, "Book", 2, 15.0));
+
+        CartAggregates aggregates = adaptor.aggregates();
+        assertThat(aggregates.getSubtotal()).isEqualTo(1230.0);
+        assertThat(aggregates.getLineCount()).isEqualTo(2);
+        assertThat(aggregates.getElectronicLines()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testMergeModeAddsToExistingLine() {
+        //Test: adding the same product twice keeps one row
+        ShoppingCart mergingCart = new ShoppingCartAdaptor(database, "merge-cart", LineMode.MERGE);
+        amazon = new Amazon(mergingCart, List.of(new RegularCost(), new DeliveryPrice()));
+
+        amazon.addToCart(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+        amazon.addToCart(new Item(ItemType.OTHER, "Pen", 3, 1.5));
+        amazon.addToCart(new Item(ItemType.ELECTRONIC, "Pen", 1, 20.0));
+
+        List<Item> items = mergingCart.getItems();
+        assertThat(items).hasSize(2);
+        assertThat(items).filteredOn(it -> it.getType() == ItemType.OTHER)
+                .extracting(Item::getQuantity).containsExactly(5);
+        // 5 * 1.5 + 20.0 = 27.5, plus 5.0 delivery for two lines
+        assertThat(amazon.calculate()).isEqualTo(32.5);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testMergeModeMergesProductsWithoutName() {
+        //Test: a product without a name is merged into one row like any other product
+        ShoppingCart mergingCart = new ShoppingCartAdaptor(database, "null-name-cart", LineMode.MERGE);
+
+        mergingCart.add(new Item(ItemType.OTHER, null, 1, 4.0));
+        mergingCart.add(new Item(ItemType.OTHER, null, 2, 4.0));
+        mergingCart.add(new Item(ItemType.OTHER, "", 1, 4.0));
+
+        assertThat(mergingCart.getItems()).extracting(Item::getQuantity).containsExactlyInAnyOrder(3, 1);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testMergedLinesAreUnique() throws Exception {
+        //Test: the database itself refuses a second merged line for a product, but appended lines may repeat
+        ShoppingCart mergingCart = new ShoppingCartAdaptor(database, "unique-cart", LineMode.MERGE);
+        mergingCart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+        ShoppingCart appendingCart = new ShoppingCartAdaptor(database, "unique-cart");
+        appendingCart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+        appendingCart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+
+        try (var ps = database.getConnection().prepareStatement("insert into shoppingcart " +
+                "(cartid, name, type, quantity, priceperunit, linekey) values ('unique-cart', 'Pen', 'OTHER', 1, 1.5, 'OTHER/Pen')")) {
+            assertThatThrownBy(ps::execute).isInstanceOf(java.sql.SQLIntegrityConstraintViolationException.class);
+        }
+        assertThat(mergingCart.getItems()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testConcurrentMergesFromSeparateConnections() throws Exception {
+        //Test: writers on different connections adding the same product end with one row holding every unit
+        Database first = new Database(PersistenceProvider.jdbc("jdbc:hsqldb:mem:merge-race", "SA", ""));
+        Database second = new Database(PersistenceProvider.jdbc("jdbc:hsqldb:mem:merge-race;hsqldb.lock_file=false", "SA", ""));
+        first.resetDatabase();
+        assertThat(first.getConnection()).isNotSameAs(second.getConnection());
+
+        Thread[] writers = new Thread[2];
+        for (int w = 0; w < writers.length; w++) {
+            ShoppingCart cart = new ShoppingCartAdaptor(w == 0 ? first : second, "race-cart", LineMode.MERGE);
+            writers[w] = new Thread(() -> {
+                for (int i = 0; i < 200; i++)
+                    cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+            });
+            writers[w].start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+
+        List<Item> items = new ShoppingCartAdaptor(first, "race-cart").getItems();
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).getQuantity()).isEqualTo(400);
+        first.close();
+        second.close();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testCartsAreSeparatedByCartId() {
+        //Test: each cart only sees its own rows
+        ShoppingCart alice = new ShoppingCartAdaptor(database, "alice");
+        ShoppingCart bob = new ShoppingCartAdaptor(database, "bob");
+
+        alice.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        bob.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        bob.add(new Item(ItemType.OTHER, "Case", 1, 15.0));
+
+        assertThat(alice.getItems()).extracting(Item::getName).containsExactly("Book");
+        assertThat(new ShoppingCartAdaptor(database, "bob").aggregates().getLineCount()).isEqualTo(2);
+        assertThat(shoppingCart.getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRemoveUpdateAndClear() {
+        //Test: single-line changes only touch the targeted rows
+        ShoppingCartAdaptor cart = new ShoppingCartAdaptor(database, "edit-cart", LineMode.MERGE);
+        ShoppingCart otherCart = new ShoppingCartAdaptor(database, "other-cart");
+        otherCart.add(new Item(ItemType.OTHER, "Pen", 1, 1.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+        cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        cart.add(new Item(ItemType.OTHER, null, 1, 4.0));
+
+        cart.updateQuantity("Pen", ItemType.OTHER, 10);
+        cart.remove("Phone", ItemType.ELECTRONIC);
+        cart.remove(null, ItemType.OTHER);
+
+        assertThat(cart.getItems()).extracting(Item::getQuantity).containsExactly(10);
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(15.0);
+        assertThat(cart.aggregates().hasElectronic()).isFalse();
+
+        cart.updateQuantity("Pen", ItemType.OTHER, 0);
+        assertThat(cart.getItems()).isEmpty();
+
+        cart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        cart.clear();
+        assertThat(cart.getItems()).isEmpty();
+        assertThat(otherCart.getItems()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuoteDoesNotWriteToDatabase() {
+        //Test: a what-if quote matches adding the item for real but leaves the rows alone
+        List<PriceRule> rules = Arrays.asList(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics());
+        amazon = new Amazon(shoppingCart, rules);
+        amazon.addToCart(new Item(ItemType.OTHER, "Book", 2, 15.0));
+        Item phone = new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0);
+
+        double quote = amazon.quoteWith(List.of(phone), List.of());
+        double[] quotes = amazon.quoteAll(List.of(phone, new Item(ItemType.OTHER, "Pen", 1, 1.0)));
+
+        assertThat(shoppingCart.getItems()).hasSize(1);
+        amazon.addToCart(phone);
+        assertThat(quote).isEqualTo(amazon.calculate());
+        assertThat(quotes).containsExactly(quote, 31.0 + 5.0);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuoteOnMergeCartReadsOnlyTheProductsLines() {
+        //Test: a MERGE cart in the database answers a quote from the rows of the products involved
+        ShoppingCartAdaptor mergingCart = new ShoppingCartAdaptor(database, "quote-cart", LineMode.MERGE);
+        mergingCart.add(new Item(ItemType.OTHER, "Book", 2, 15.0));
+        mergingCart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        shoppingCart.add(new Item(ItemType.OTHER, "Book", 5, 1.0));
+        amazon = new Amazon(mergingCart, Arrays.asList(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics()));
+
+        assertThat(mergingCart.linesOf("Book", ItemType.OTHER)).extracting(Item::getQuantity).containsExactly(2);
+        double quote = amazon.quoteWith(List.of(new Item(ItemType.OTHER, "Book", 1, 20.0)),
+                List.of(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0)));
+
+        mergingCart.add(new Item(ItemType.OTHER, "Book", 1, 20.0));
+        mergingCart.remove("Phone", ItemType.ELECTRONIC);
+        assertThat(quote).isEqualTo(amazon.calculate()).isEqualTo(45.0 + 5.0);
+    }
+}
@@ -261,4 +261,190 @@ class AmazonUnitTest {
 
         assertThat(result).isEqualTo(412.5);
     }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCalculate_aggregatingCart_usesAggregatesOnly() {
+        // Test: a cart that computes aggregates is never asked for its items
+        AggregatingCart aggregatingCart = Mockito.mock(AggregatingCart.class);
+        when(aggregatingCart.aggregates()).thenReturn(new CartAggregates(1000.0, 1, 1));
+        rules.add(new RegularCost());
+        rules.add(new DeliveryPrice());
+        rules.add(new ExtraCostForElectronics());
+
+        Amazon amazon = new Amazon(aggregatingCart, rules);
+        double result = amazon.calculate();
+
+        // 1000.0 (regular) + 5.0 (delivery for 1 item) + 7.5 (electronics) = 1012.5
+        assertThat(result).isEqualTo(1012.5);
+        verify(aggregatingCart, times(1)).aggregates();
+        verify(aggregatingCart, never()).getItems();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testCalculate_aggregatingCart_ruleWithoutAggregates() {
+        // Test: rules that need the items still get them
+        AggregatingCart aggregatingCart = Mockito.mock(AggregatingCart.class);
+        when(aggregatingCart.aggregates()).thenReturn(new CartAggregates(30.0, 2, 0));
+        when(aggregatingCart.getItems()).thenReturn(List.of(new Item(ItemType.OTHER, "Item1", 1, 10.0)));
+        rules.add(new RegularCost());
+        rules.add(cart -> cart.size() * 100.0);
+
+        Amazon amazon = new Amazon(aggregatingCart, rules);
+        double result = amazon.calculate();
+
+        assertThat(result).isEqualTo(130.0);
+        verify(aggregatingCart, times(1)).getItems();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testAggregates_matchItemBasedPricing() {
+        // Test: every rule gives the same price from items and from aggregates
+        List<Item> items = Arrays.asList(
+                new Item(ItemType.OTHER, "Book", 3, 12.99),
+                new Item(ItemType.ELECTRONIC, "Phone", 1, 499.0),
+                new Item(ItemType.OTHER, "Pen", 7, 1.1));
+        CartAggregates aggregates = CartAggregates.of(items);
+
+        for (AggregatePriceRule rule : List.of(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics())) {
+            assertThat(rule.priceFromAggregates(aggregates)).isEqualTo(rule.priceToAggregate(items));
+        }
+        assertThat(CartAggregates.EMPTY.hasElectronic()).isFalse();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuoteWith_aggregatingCart_pricesDeltaWithoutChangingCart() {
+        // Test: a what-if quote uses the cart's aggregates and never writes to the cart
+        AggregatingCart aggregatingCart = Mockito.mock(AggregatingCart.class);
+        when(aggregatingCart.aggregates()).thenReturn(new CartAggregates(30.0, 2, 0));
+        rules.add(new RegularCost());
+        rules.add(new DeliveryPrice());
+        rules.add(new ExtraCostForElectronics());
+
+        Amazon amazon = new Amazon(aggregatingCart, rules);
+        double withPhone = amazon.quoteWith(List.of(new Item(ItemType.ELECTRONIC, "Phone", 1, 200.0)), List.of());
+
+        // 230 + 5 (3 lines) + 7.5 (electronics)
+        assertThat(withPhone).isEqualTo(242.5);
+        verify(aggregatingCart, never()).add(any());
+        verify(aggregatingCart, never()).getItems();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuoteWith_removesOnlyLinesInTheCart() {
+        // Test: removing a line the cart does not have changes nothing on either pricing path
+        AggregatingCart aggregatingCart = Mockito.mock(AggregatingCart.class);
+        when(aggregatingCart.aggregates()).thenReturn(new CartAggregates(30.0, 2, 0));
+        when(aggregatingCart.getItems()).thenReturn(List.of(
+                new Item(ItemType.OTHER, "Book", 1, 10.0), new Item(ItemType.OTHER, "Lamp", 1, 20.0)));
+        when(aggregatingCart.linesOf("Book", ItemType.OTHER)).thenReturn(List.of(new Item(ItemType.OTHER, "Book", 1, 10.0)));
+        rules.add(new RegularCost());
+        rules.add(new DeliveryPrice());
+        rules.add(cart -> cart.size() * 100.0);
+
+        Amazon amazon = new Amazon(aggregatingCart, rules);
+        double withoutBook = amazon.quoteWith(List.of(), List.of(new Item(ItemType.OTHER, "Book", 1, 10.0)));
+        double withoutMug = amazon.quoteWith(List.of(), List.of(new Item(ItemType.OTHER, "Mug", 1, 5.0)));
+
+        // 20 + 5 (1 line) + 100 (1 line)
+        assertThat(withoutBook).isEqualTo(125.0);
+        // 30 + 5 (2 lines) + 200 (2 lines)
+        assertThat(withoutMug).isEqualTo(235.0);
+        verify(aggregatingCart, never()).add(any());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuoteWith_mergeCartMatchesAddingForReal() {
+        // Test: on a MERGE cart a quote counts a product that is already there as the same line, as add does
+        InMemoryShoppingCart mergeCart = new InMemoryShoppingCart(LineMode.MERGE);
+        mergeCart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        mergeCart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 200.0));
+        mergeCart.add(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+        rules.add(new RegularCost());
+        rules.add(new DeliveryPrice());
+        rules.add(new ExtraCostForElectronics());
+        rules.add(cart -> cart.size() * 100.0);
+
+        Amazon amazon = new Amazon(mergeCart, rules);
+        List<Item> adding = List.of(new Item(ItemType.OTHER, "Book", 2, 12.0), new Item(ItemType.OTHER, "Mug", 1, 4.0));
+        double quote = amazon.quoteWith(adding, List.of());
+        double[] quotes = amazon.quoteAll(adding);
+        for (Item item : adding)
+            amazon.addToCart(item);
+
+        // 10 * 3 + 200 + 3 + 4 = 237, + 12.5 (4 lines) + 7.5 + 400
+        assertThat(quote).isEqualTo(amazon.calculate()).isEqualTo(657.0);
+        // the Book only raises its line, the Mug adds one
+        assertThat(quotes).containsExactly(233.0 + 5.0 + 7.5 + 300.0, 217.0 + 12.5 + 7.5 + 400.0);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuoteAll_readsCartOnce() {
+        // Test: many candidates are priced against one read of the aggregates
+        AggregatingCart aggregatingCart = Mockito.mock(AggregatingCart.class);
+        when(aggregatingCart.aggregates()).thenReturn(new CartAggregates(100.0, 3, 1));
+        rules.add(new RegularCost());
+        rules.add(new DeliveryPrice());
+
+        Amazon amazon = new Amazon(aggregatingCart, rules);
+        double[] quotes = amazon.quoteAll(List.of(
+                new Item(ItemType.OTHER, "Pen", 2, 1.0),
+                new Item(ItemType.OTHER, "Lamp", 1, 40.0)));
+
+        // 102 + 12.5 (4 lines) and 140 + 12.5
+        assertThat(quotes).containsExactly(114.5, 152.5);
+        verify(aggregatingCart, times(1)).aggregates();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testQuoteAll_mergeCart_looksUpOnlyTheCandidateLines() {
+        // Test: on a MERGE cart each candidate is priced from its own line, without reading every item
+        InMemoryShoppingCart mergeCart = Mockito.spy(new InMemoryShoppingCart(LineMode.MERGE));
+        mergeCart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        mergeCart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 200.0));
+        rules.add(new RegularCost());
+        rules.add(new DeliveryPrice());
+        rules.add(new ExtraCostForElectronics());
+
+        Amazon amazon = new Amazon(mergeCart, rules);
+        double[] quotes = amazon.quoteAll(List.of(
+                new Item(ItemType.OTHER, "Book", 2, 12.0),
+                new Item(ItemType.OTHER, "Mug", 1, 4.0)));
+        double withoutBook = amazon.quoteWith(List.of(), List.of(new Item(ItemType.OTHER, "Book", 1, 10.0)));
+
+        // 230 + 5 (2 lines) + 7.5, 214 + 5 (3 lines) + 7.5 and 200 + 5 (1 line) + 7.5
+        assertThat(quotes).containsExactly(242.5, 226.5);
+        assertThat(withoutBook).isEqualTo(212.5);
+        verify(mergeCart, never()).getItems();
+        verify(mergeCart, times(2)).linesOf("Book", ItemType.OTHER);
+        verify(mergeCart, times(1)).linesOf("Mug", ItemType.OTHER);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testQuoteWith_plainCart_appliesChangesToCopy() {
+        // Test: rules that need the items price a copy with the changes, and the cart keeps its items
+        List<Item> items = new ArrayList<>(List.of(
+                new Item(ItemType.OTHER, "Book", 1, 10.0),
+                new Item(ItemType.OTHER, "Book", 1, 10.0)));
+        when(mockCart.getItems()).thenReturn(items);
+        rules.add(new RegularCost());
+        rules.add(cart -> cart.size() * 100.0);
+
+        Amazon amazon = new Amazon(mockCart, rules);
+        double quote = amazon.quoteWith(List.of(new Item(ItemType.OTHER, "Pen", 3, 1.0)),
+                List.of(new Item(ItemType.OTHER, "Book", 1, 10.0), new Item(ItemType.OTHER, "Mug", 1, 5.0)));
+
+        assertThat(quote).isEqualTo(13.0 + 200.0);
+        assertThat(items).hasSize(2);
+        verify(mockCart, times(1)).getItems();
+        verify(mockCart, never()).add(any());
+    }
 }
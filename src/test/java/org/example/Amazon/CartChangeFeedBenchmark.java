@@ -0,0 +1,73 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of keeping a consumer up to date with a database cart of 5,000 lines:
+ * rereading the cart after every change versus applying the change feed.
+ * Run with: java -cp target/classes:target/test-classes:$HSQLDB_JAR org.example.Amazon.CartChangeFeedBenchmark
+ */
+public class CartChangeFeedBenchmark {
+
+    private static final int LINES = 5_000;
+    private static final int CHANGES = 500;
+
+    public static void main(String[] args) throws InterruptedException {
+        Database database = new Database(PersistenceProvider.inMemory("feed-benchmark"));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        for (int round = 0; round < 3; round++) {
+            database.resetDatabase();
+            ShoppingCartAdaptor cart = new ShoppingCartAdaptor(database, "cart");
+            for (int i = 0; i < LINES; i++)
+                cart.add(new Item(ItemType.OTHER, "item-" + i, 1, 9.99));
+
+            long start = System.nanoTime();
+            long rowsRead = 0;
+            for (int i = 0; i < CHANGES; i++) {
+                cart.add(new Item(ItemType.OTHER, "poll-" + i, 1, 9.99));
+                rowsRead += cart.getItems().size();
+            }
+            long poll = System.nanoTime() - start;
+
+            CartChangePublisher feed = new CartChangePublisher(executor, 256, OverflowPolicy.BLOCK);
+            ObservableShoppingCart observed = new ObservableShoppingCart(cart, "cart", feed);
+            CountDownLatch received = new CountDownLatch(CHANGES);
+            feed.subscribe(new Flow.Subscriber<>() {
+                @Override
+                public void onSubscribe(Flow.Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(CartChange change) {
+                    received.countDown();
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            start = System.nanoTime();
+            for (int i = 0; i < CHANGES; i++)
+                observed.add(new Item(ItemType.OTHER, "feed-" + i, 1, 9.99));
+            received.await(1, TimeUnit.MINUTES);
+            long push = System.nanoTime() - start;
+            feed.close();
+
+            System.out.printf("round %d: poll %,d us/change (%,d rows read), feed %,d us/change%n",
+                    round, poll / CHANGES / 1000, rowsRead, push / CHANGES / 1000);
+        }
+        executor.shutdown();
+        database.close();
+    }
+}
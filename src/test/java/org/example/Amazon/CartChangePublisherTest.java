@@ -0,0 +1,370 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CartChangePublisherTest {
+
+    private ExecutorService executor;
+
+    // keeps every change it gets and only requests what the test asks for
+    private static class RecordingSubscriber implements Flow.Subscriber<CartChange> {
+        final LinkedBlockingQueue<CartChange> received = new LinkedBlockingQueue<>();
+        final CountDownLatch subscribed = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        private final long initialRequest;
+        volatile Flow.Subscription subscription;
+        volatile Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0)
+                subscription.request(initialRequest);
+            subscribed.countDown();
+        }
+
+        @Override
+        public void onNext(CartChange item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        CartChange take() throws InterruptedException {
+            CartChange change = received.poll(5, TimeUnit.SECONDS);
+            assertThat(change).as("change within 5 seconds").isNotNull();
+            return change;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private RecordingSubscriber subscribe(CartChangePublisher feed, long initialRequest) throws InterruptedException {
+        RecordingSubscriber subscriber = new RecordingSubscriber(initialRequest);
+        feed.subscribe(subscriber);
+        assertThat(subscriber.subscribed.await(5, TimeUnit.SECONDS)).isTrue();
+        return subscriber;
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testPublishesEveryKindOfChangeInOrder() throws InterruptedException {
+        //Test: add, update, remove and clear reach the subscriber with consecutive sequence numbers
+        CartChangePublisher feed = new CartChangePublisher(executor, 16, OverflowPolicy.BLOCK);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber subscriber = subscribe(feed, Long.MAX_VALUE);
+
+        cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        cart.updateQuantity("Phone", ItemType.ELECTRONIC, 2);
+        cart.remove("Phone", ItemType.ELECTRONIC);
+        cart.clear();
+
+        CartChange add = subscriber.take();
+        assertThat(add.getKind()).isEqualTo(CartChange.Kind.ADD);
+        assertThat(add.getCartId()).isEqualTo("cart-1");
+        assertThat(add.toItem().getPricePerUnit()).isEqualTo(300.0);
+        CartChange update = subscriber.take();
+        assertThat(update.getKind()).isEqualTo(CartChange.Kind.UPDATE);
+        assertThat(update.getQuantity()).isEqualTo(2);
+        assertThat(subscriber.take().getKind()).isEqualTo(CartChange.Kind.REMOVE);
+        CartChange clear = subscriber.take();
+        assertThat(clear.getKind()).isEqualTo(CartChange.Kind.CLEAR);
+        assertThat(List.of(add.getSequence(), update.getSequence(), clear.getSequence())).containsExactly(1L, 2L, 4L);
+        assertThat(cart.getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testDropNewestKeepsTheFirstChanges() throws InterruptedException {
+        //Test: with a full buffer new changes are dropped and the subscriber sees the gap in the sequence
+        CartChangePublisher feed = new CartChangePublisher(executor, 2, OverflowPolicy.DROP_NEWEST);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber subscriber = subscribe(feed, 0);
+
+        for (int i = 1; i <= 5; i++)
+            cart.add(new Item(ItemType.OTHER, "Book " + i, 1, 10.0));
+        subscriber.subscription.request(10);
+        assertThat(List.of(subscriber.take().getSequence(), subscriber.take().getSequence())).containsExactly(1L, 2L);
+        cart.add(new Item(ItemType.OTHER, "Book 6", 1, 10.0));
+
+        assertThat(subscriber.take().getSequence()).isEqualTo(6L);
+        assertThat(feed.getDropped()).isEqualTo(3);
+        assertThat(cart.getItems()).hasSize(6);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testDropOldestKeepsTheLatestChanges() throws InterruptedException {
+        //Test: with a full buffer the oldest change makes room for the new one
+        CartChangePublisher feed = new CartChangePublisher(executor, 2, OverflowPolicy.DROP_OLDEST);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber subscriber = subscribe(feed, 0);
+
+        for (int i = 1; i <= 5; i++)
+            cart.add(new Item(ItemType.OTHER, "Book " + i, 1, 10.0));
+        subscriber.subscription.request(10);
+
+        assertThat(List.of(subscriber.take().getSequence(), subscriber.take().getSequence())).containsExactly(4L, 5L);
+        assertThat(feed.getDropped()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testBlockMakesWritersWaitForTheSubscriber() throws Exception {
+        //Test: with a full buffer the cart call waits until the subscriber requests more, and nothing is lost
+        CartChangePublisher feed = new CartChangePublisher(executor, 2, OverflowPolicy.BLOCK);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber subscriber = subscribe(feed, 0);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 5; i++)
+                cart.add(new Item(ItemType.OTHER, "Book " + i, 1, 10.0));
+        });
+        writer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.getState() != Thread.State.WAITING && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertThat(writer.getState()).isEqualTo(Thread.State.WAITING);
+        assertThat(cart.getItems()).hasSize(3);
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        writer.join(5000);
+
+        for (long sequence = 1; sequence <= 5; sequence++)
+            assertThat(subscriber.take().getSequence()).isEqualTo(sequence);
+        assertThat(feed.getDropped()).isZero();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCloseReleasesBlockedWriters() throws Exception {
+        //Test: a writer blocked on a stalled subscriber holds no feed lock, and close lets it go
+        CartChangePublisher feed = new CartChangePublisher(executor, 1, OverflowPolicy.BLOCK);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber stalled = subscribe(feed, 0);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 1; i <= 3; i++)
+                cart.add(new Item(ItemType.OTHER, "Book " + i, 1, 10.0));
+        });
+        writer.start();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.getState() != Thread.State.WAITING && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertThat(writer.getState()).isEqualTo(Thread.State.WAITING);
+        assertThat(feed.getSequence()).isEqualTo(2);
+        RecordingSubscriber late = subscribe(feed, 0);
+
+        Thread closer = new Thread(feed::close);
+        closer.start();
+        closer.join(5000);
+        assertThat(closer.isAlive()).isFalse();
+        writer.join(5000);
+        assertThat(writer.isAlive()).isFalse();
+
+        stalled.subscription.request(10);
+        assertThat(stalled.take().getSequence()).isEqualTo(1);
+        assertThat(stalled.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(late.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        // the second change was dropped at close, and the third was made after it
+        assertThat(feed.getDropped()).isEqualTo(1);
+        assertThat(cart.getItems()).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testStateLinesUpWithTheFeed() throws InterruptedException {
+        //Test: the cart's state plus the changes numbered after it is the cart, even while it is being written
+        CartChangePublisher feed = new CartChangePublisher(executor, 1_024, OverflowPolicy.BLOCK);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        ObservableShoppingCart other = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-2", feed);
+        RecordingSubscriber subscriber = subscribe(feed, Long.MAX_VALUE);
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                cart.add(new Item(ItemType.OTHER, "Book " + i, 1, 10.0));
+                other.add(new Item(ItemType.OTHER, "Pen " + i, 1, 1.0));
+            }
+        });
+        writer.start();
+        ObservableShoppingCart.State state;
+        do {
+            state = cart.state();
+        } while (state.getItems().size() < 100 && writer.isAlive());
+        writer.join(5000);
+        feed.close();
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+
+        List<String> rebuilt = new ArrayList<>();
+        for (Item item : state.getItems())
+            rebuilt.add(item.getName());
+        for (CartChange change : subscriber.received) {
+            if (change.getCartId().equals("cart-1") && change.getSequence() > state.getSequence())
+                rebuilt.add(change.getName());
+        }
+        assertThat(rebuilt).isEqualTo(cart.getItems().stream().map(Item::getName).toList());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSubscribersHaveTheirOwnBuffers() throws InterruptedException {
+        //Test: a subscriber without demand does not hold back one that keeps up
+        CartChangePublisher feed = new CartChangePublisher(executor, 1, OverflowPolicy.DROP_NEWEST);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber fast = subscribe(feed, Long.MAX_VALUE);
+        RecordingSubscriber stalled = subscribe(feed, 0);
+
+        for (int i = 1; i <= 3; i++) {
+            cart.add(new Item(ItemType.OTHER, "Book " + i, 1, 10.0));
+            assertThat(fast.take().getSequence()).isEqualTo(i);
+        }
+        stalled.subscription.request(10);
+
+        assertThat(stalled.take().getSequence()).isEqualTo(1);
+        assertThat(stalled.received.poll(50, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(feed.getDropped()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testConsumerKeepsStateWithoutPolling() throws InterruptedException {
+        //Test: a consumer that applies the changes of several carts ends up with the carts' own contents
+        CartChangePublisher feed = new CartChangePublisher(executor, 8, OverflowPolicy.BLOCK);
+        Map<String, ObservableShoppingCart> carts = new HashMap<>();
+        for (String id : List.of("a", "b"))
+            carts.put(id, new ObservableShoppingCart(new InMemoryShoppingCart(LineMode.MERGE), id, feed));
+        Map<String, Map<String, Integer>> state = new HashMap<>();
+        CountDownLatch done = new CountDownLatch(1);
+        feed.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(CartChange change) {
+                Map<String, Integer> lines = state.computeIfAbsent(change.getCartId(), id -> new HashMap<>());
+                switch (change.getKind()) {
+                    case ADD -> lines.merge(change.getName(), change.getQuantity(), Integer::sum);
+                    // updating a product that is not in the cart does nothing
+                    case UPDATE -> lines.computeIfPresent(change.getName(),
+                            (name, quantity) -> change.getQuantity() <= 0 ? null : change.getQuantity());
+                    case REMOVE -> lines.remove(change.getName());
+                    case CLEAR -> lines.clear();
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+
+        for (int i = 0; i < 200; i++) {
+            ObservableShoppingCart cart = carts.get(i % 3 == 0 ? "a" : "b");
+            String name = "Book " + (i % 7);
+            switch (i % 5) {
+                case 0, 1, 2 -> cart.add(new Item(ItemType.OTHER, name, 1 + i % 3, 10.0));
+                case 3 -> cart.updateQuantity(name, ItemType.OTHER, i % 4);
+                default -> cart.remove(name, ItemType.OTHER);
+            }
+            if (i == 150)
+                cart.clear();
+        }
+        feed.close();
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        for (var cart : carts.entrySet()) {
+            Map<String, Integer> expected = new HashMap<>();
+            for (Item item : cart.getValue().getItems())
+                expected.put(item.getName(), item.getQuantity());
+            assertThat(state.getOrDefault(cart.getKey(), Map.of())).isEqualTo(expected);
+        }
+        assertThat(feed.getSequence()).isEqualTo(201);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testCancelAndClose() throws InterruptedException {
+        //Test: a cancelled subscriber leaves the feed, and close completes the rest after their buffered changes
+        CartChangePublisher feed = new CartChangePublisher(executor, 4, OverflowPolicy.BLOCK);
+        ObservableShoppingCart cart = new ObservableShoppingCart(new InMemoryShoppingCart(), "cart-1", feed);
+        RecordingSubscriber cancelled = subscribe(feed, 0);
+        RecordingSubscriber open = subscribe(feed, 0);
+
+        cancelled.subscription.cancel();
+        assertThat(feed.getSubscriberCount()).isEqualTo(1);
+        cart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        feed.close();
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.0));
+        open.subscription.request(10);
+
+        assertThat(open.take().getName()).isEqualTo("Book");
+        assertThat(open.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(open.received).isEmpty();
+        assertThat(cancelled.received).isEmpty();
+        assertThat(feed.getSequence()).isEqualTo(1);
+
+        RecordingSubscriber late = new RecordingSubscriber(1);
+        feed.subscribe(late);
+        assertThat(late.completed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testNonPositiveRequestIsAnError() throws InterruptedException {
+        //Test: request(0) ends the subscription with IllegalArgumentException
+        CartChangePublisher feed = new CartChangePublisher(executor, 4, OverflowPolicy.DROP_NEWEST);
+        RecordingSubscriber subscriber = subscribe(feed, 0);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(feed.getSubscriberCount()).isZero();
+        assertThatThrownBy(() -> new CartChangePublisher(executor, 0, OverflowPolicy.BLOCK))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
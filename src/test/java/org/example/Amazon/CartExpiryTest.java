@@ -0,0 +1,190 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CartExpiryTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private void sleep(Duration duration) {
+        now.addAndGet(duration.toNanos());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testIdleCartExpiresUnlessTouched() {
+        //Test: touching a cart pushes its expiry back
+        List<String> reaped = new ArrayList<>();
+        CartExpiry expiry = new CartExpiry(Duration.ofMillis(100), 64, Duration.ofSeconds(5), 100, reaped::addAll, now::get);
+        expiry.touch("idle");
+        expiry.touch("active");
+
+        sleep(Duration.ofSeconds(3));
+        expiry.touch("active");
+        expiry.advance();
+        assertThat(reaped).isEmpty();
+
+        sleep(Duration.ofSeconds(3));
+        assertThat(expiry.advance()).isEqualTo(1);
+        assertThat(reaped).containsExactly("idle");
+        assertThat(expiry.liveCarts()).isEqualTo(1);
+
+        expiry.cancel("active");
+        sleep(Duration.ofSeconds(10));
+        expiry.advance();
+        assertThat(reaped).containsExactly("idle");
+        assertThat(expiry.liveCarts()).isZero();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testExpiredCartsAreDeletedFromTheTable() {
+        //Test: the reaper can delete expired carts' rows in one batch
+        Database database = new Database();
+        database.resetDatabase();
+        ShoppingCart keep = new ShoppingCartAdaptor(database, "keep");
+        keep.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        new ShoppingCartAdaptor(database, "gone-1").add(new Item(ItemType.OTHER, "Pen", 1, 1.0));
+        new ShoppingCartAdaptor(database, "gone-2").add(new Item(ItemType.OTHER, "Mug", 1, 5.0));
+
+        CartExpiry expiry = new CartExpiry(Duration.ofMillis(10), 512, Duration.ofMinutes(30), 1_000,
+                ids -> ShoppingCartAdaptor.deleteCarts(database, ids), now::get);
+        expiry.schedule("gone-1", Duration.ofSeconds(1));
+        expiry.schedule("gone-2", Duration.ofSeconds(2));
+        expiry.touch("keep");
+        sleep(Duration.ofSeconds(3));
+        expiry.advance();
+
+        assertThat(new ShoppingCartAdaptor(database, "gone-1").getItems()).isEmpty();
+        assertThat(new ShoppingCartAdaptor(database, "gone-2").getItems()).isEmpty();
+        assertThat(keep.getItems()).hasSize(1);
+        database.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testAdaptorTouchesItsCart() {
+        //Test: an adaptor given the expiry keeps its cart alive by being used, with no explicit touch
+        Database database = new Database();
+        database.resetDatabase();
+        CartExpiry expiry = new CartExpiry(Duration.ofMillis(100), 64, Duration.ofSeconds(5), 100,
+                ids -> ShoppingCartAdaptor.deleteCarts(database, ids), now::get);
+        ShoppingCart cart = new ShoppingCartAdaptor(database, "used", LineMode.APPEND, expiry);
+        cart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+
+        sleep(Duration.ofSeconds(3));
+        assertThat(cart.getItems()).hasSize(1);
+        sleep(Duration.ofSeconds(3));
+        assertThat(expiry.advance()).isZero();
+        assertThat(cart.getItems()).hasSize(1);
+
+        sleep(Duration.ofSeconds(6));
+        assertThat(expiry.advance()).isEqualTo(1);
+        assertThat(new ShoppingCartAdaptor(database, "used").getItems()).isEmpty();
+        database.resetDatabase();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testTouchWaitsForTheReaper() throws InterruptedException {
+        //Test: a touch racing the reaper waits until the batch is deleted, then starts the cart afresh
+        List<Thread> touchers = new ArrayList<>();
+        List<Boolean> blocked = new ArrayList<>();
+        CartExpiry[] expiry = new CartExpiry[1];
+        expiry[0] = new CartExpiry(Duration.ofMillis(100), 64, Duration.ofSeconds(5), 100, batch -> {
+            Thread toucher = new Thread(() -> expiry[0].touch("raced"));
+            toucher.start();
+            touchers.add(toucher);
+            try {
+                toucher.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            blocked.add(toucher.isAlive());
+        }, now::get);
+        expiry[0].touch("raced");
+
+        sleep(Duration.ofSeconds(6));
+        assertThat(expiry[0].advance()).isEqualTo(1);
+        touchers.get(0).join();
+
+        assertThat(blocked).containsExactly(true);
+        assertThat(expiry[0].liveCarts()).isEqualTo(1);
+        sleep(Duration.ofSeconds(1));
+        assertThat(expiry[0].advance()).isZero();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testOtherCartsAreTouchedWhileABatchIsReaped() throws InterruptedException {
+        //Test: the reaper deletes outside the lock, so only the carts it is deleting have to wait
+        List<Boolean> finished = new ArrayList<>();
+        CartExpiry[] expiry = new CartExpiry[1];
+        expiry[0] = new CartExpiry(Duration.ofMillis(100), 64, Duration.ofSeconds(5), 100, batch -> {
+            Thread toucher = new Thread(() -> {
+                expiry[0].touch("busy");
+                expiry[0].cancel("busy");
+            });
+            toucher.start();
+            try {
+                toucher.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            finished.add(!toucher.isAlive());
+        }, now::get);
+        expiry[0].touch("idle");
+
+        sleep(Duration.ofSeconds(6));
+        assertThat(expiry[0].advance()).isEqualTo(1);
+
+        assertThat(finished).containsExactly(true);
+        assertThat(expiry[0].liveCarts()).isZero();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testMillionCarts() {
+        //Test: a million carts expire exactly once, in bounded batches
+        int carts = 1_000_000;
+        int batchSize = 10_000;
+        Set<String> reaped = new HashSet<>();
+        int[] largestBatch = {0};
+        CartExpiry expiry = new CartExpiry(Duration.ofMillis(10), 4_096, Duration.ofMinutes(30), batchSize, batch -> {
+            largestBatch[0] = Math.max(largestBatch[0], batch.size());
+            reaped.addAll(batch);
+        }, now::get);
+
+        for (int i = 0; i < carts; i++)
+            expiry.schedule("cart-" + i, Duration.ofMillis(1 + i % 120_000));
+        // cancel every tenth cart, as if it checked out
+        for (int i = 0; i < carts; i += 10)
+            expiry.cancel("cart-" + i);
+        assertThat(expiry.liveCarts()).isEqualTo(carts - carts / 10);
+
+        sleep(Duration.ofSeconds(60));
+        expiry.advance();
+        assertThat(expiry.liveCarts()).isBetween(400_000, 500_000);
+
+        sleep(Duration.ofSeconds(61));
+        expiry.advance();
+
+        assertThat(expiry.liveCarts()).isZero();
+        assertThat(reaped).hasSize(carts - carts / 10);
+        assertThat(reaped).doesNotContain("cart-0", "cart-10");
+        assertThat(expiry.expiredTotal()).isEqualTo(carts - carts / 10);
+        assertThat(expiry.expirationsPerSecond()).isPositive();
+        assertThat(largestBatch[0]).isLessThanOrEqualTo(batchSize);
+    }
+}
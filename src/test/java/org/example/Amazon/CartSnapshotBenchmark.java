@@ -0,0 +1,56 @@
+package org.example.Amazon;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Snapshot and restore time for a 1M row shoppingcart table.
+ * Run with: java -cp target/classes:target/test-classes:hsqldb.jar org.example.Amazon.CartSnapshotBenchmark [rows]
+ */
+public class CartSnapshotBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Database database = new Database();
+        database.resetDatabase();
+        Path file = Files.createTempFile("cart", ".snapshot");
+
+        database.withSql(() -> {
+            database.getConnection().setAutoCommit(false);
+            try (var ps = database.getConnection().prepareStatement("insert into shoppingcart (name, type, quantity, priceperunit) values (?,?,?,?)")) {
+                for (int i = 0; i < rows; i++) {
+                    ps.setString(1, "Item" + i);
+                    ps.setString(2, i % 10 == 0 ? "ELECTRONIC" : "OTHER");
+                    ps.setInt(3, 1 + i % 5);
+                    ps.setDouble(4, 0.99 + i % 100);
+                    ps.addBatch();
+                    if (i % 10_000 == 9_999)
+                        ps.executeBatch();
+                }
+                if (rows % 10_000 != 0)
+                    ps.executeBatch();
+                database.getConnection().commit();
+            } finally {
+                database.getConnection().setAutoCommit(true);
+            }
+            return null;
+        });
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            CartSnapshot.export(database, file);
+            long export = System.nanoTime() - start;
+
+            database.resetDatabase();
+            start = System.nanoTime();
+            CartSnapshot.restore(database, file);
+            long restore = System.nanoTime() - start;
+
+            System.out.printf("round %d: %,d rows, %,d bytes, export %d ms, restore %d ms%n",
+                    round, rows, Files.size(file), export / 1_000_000, restore / 1_000_000);
+        }
+
+        Files.delete(file);
+        database.close();
+    }
+}
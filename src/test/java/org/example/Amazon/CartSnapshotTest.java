@@ -0,0 +1,203 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class CartSnapshotTest {
+    private static Database database;
+    private ShoppingCart shoppingCart;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        database = new Database();
+    }
+
+    @BeforeEach
+    void setUp() {
+        database.resetDatabase();
+        shoppingCart = new ShoppingCartAdaptor(database);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        if (database != null) {
+            database.close();
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testExportAndRestore() {
+        //Test: rows survive a snapshot and a reset
+        shoppingCart.add(new Item(ItemType.OTHER, "Java Book", 2, 45.0));
+        shoppingCart.add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 1200.99));
+        shoppingCart.add(new Item(ItemType.OTHER, "Café Mug", 3, 7.25));
+        Path file = tempDir.resolve("cart.snapshot");
+
+        assertThat(CartSnapshot.export(database, file)).isEqualTo(3);
+        database.resetDatabase();
+        assertThat(CartSnapshot.restore(database, file)).isEqualTo(3);
+
+        List<Item> items = shoppingCart.getItems();
+        assertThat(items).extracting(Item::getName).containsExactlyInAnyOrder("Java Book", "Laptop", "Café Mug");
+        assertThat(items).extracting(Item::getType).contains(ItemType.ELECTRONIC);
+        assertThat(items.stream().mapToDouble(it -> it.getQuantity() * it.getPricePerUnit()).sum())
+                .isEqualTo(2 * 45.0 + 1200.99 + 3 * 7.25);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testRecordsSpanningBufferBoundary() throws SQLException {
+        //Test: more rows than fit in one read buffer
+        insertRows(70_000);
+        Path file = tempDir.resolve("big.snapshot");
+
+        CartSnapshot.export(database, file);
+        database.resetDatabase();
+
+        assertThat(CartSnapshot.restore(database, file)).isEqualTo(70_000);
+        assertThat(shoppingCart.getItems()).hasSize(70_000);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testEmptyCart() {
+        //Test: zero rows
+        Path file = tempDir.resolve("empty.snapshot");
+
+        assertThat(CartSnapshot.export(database, file)).isZero();
+        assertThat(CartSnapshot.restore(database, file)).isZero();
+        assertThat(shoppingCart.getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testRejectsOtherFiles() throws Exception {
+        //Test: wrong magic number
+        Path file = tempDir.resolve("not-a-snapshot");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13});
+
+        assertThatThrownBy(() -> CartSnapshot.restore(database, file)).isInstanceOf(UncheckedIOException.class);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testFailedRestoreLeavesTableUnchanged() throws Exception {
+        //Test: a row the database rejects rolls back the rows restored before it
+        shoppingCart.add(new Item(ItemType.OTHER, "Kept", 1, 1.0));
+        Path file = tempDir.resolve("too-long.snapshot");
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.putInt(0x43415254).put((byte) 2).putLong(3);
+        for (String name : List.of("First", "Second", "x".repeat(150))) {
+            buffer.putShort((short) 7).put("default".getBytes(StandardCharsets.UTF_8));
+            buffer.put((byte) ItemType.OTHER.ordinal());
+            buffer.putShort((short) name.length()).put(name.getBytes(StandardCharsets.UTF_8));
+            buffer.putInt(1).putDouble(1.0);
+        }
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+
+        assertThatThrownBy(() -> CartSnapshot.restore(database, file)).isInstanceOf(RuntimeException.class);
+        assertThat(shoppingCart.getItems()).extracting(Item::getName).containsExactly("Kept");
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testRejectsUnknownItemType() throws Exception {
+        //Test: a type ordinal outside ItemType is reported as a corrupt file and nothing is restored
+        Path file = tempDir.resolve("bad-type.snapshot");
+        shoppingCart.add(new Item(ItemType.OTHER, "A", 1, 1.0));
+        shoppingCart.add(new Item(ItemType.OTHER, "B", 1, 1.0));
+        CartSnapshot.export(database, file);
+        byte[] bytes = Files.readAllBytes(file);
+        // header, first record (2 + 7 + 1 + 2 + 1 + 4 + 8 + 1), then the second record's cart id
+        bytes[13 + 26 + 2 + 7] = 99;
+        Files.write(file, bytes);
+        database.resetDatabase();
+
+        assertThatThrownBy(() -> CartSnapshot.restore(database, file))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("unknown item type 99");
+        assertThat(shoppingCart.getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRestoresVersion1Files() throws Exception {
+        //Test: files written before carts had ids are restored into the default cart
+        Path file = tempDir.resolve("v1.snapshot");
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        buffer.putInt(0x43415254).put((byte) 1).putLong(2);
+        buffer.put((byte) ItemType.OTHER.ordinal()).putShort((short) 4).put("Book".getBytes(StandardCharsets.UTF_8));
+        buffer.putInt(2).putDouble(10.0);
+        buffer.put((byte) ItemType.ELECTRONIC.ordinal()).putShort((short) -1);
+        buffer.putInt(1).putDouble(99.0);
+        Files.write(file, Arrays.copyOf(buffer.array(), buffer.position()));
+
+        assertThat(CartSnapshot.restore(database, file)).isEqualTo(2);
+        assertThat(shoppingCart.getItems()).extracting(Item::getName).containsExactlyInAnyOrder("Book", null);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testRejectsNewerVersions() throws Exception {
+        //Test: a file from a newer format names its version instead of looking like a foreign file
+        Path file = tempDir.resolve("v9.snapshot");
+        Files.write(file, ByteBuffer.allocate(13).putInt(0x43415254).put((byte) 9).putLong(0).array());
+
+        assertThatThrownBy(() -> CartSnapshot.restore(database, file))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasMessageContaining("Unsupported cart snapshot version 9");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testMergedLinesStayMerged() {
+        //Test: a merged line restored from a snapshot still takes later adds of its product
+        ShoppingCart mergingCart = new ShoppingCartAdaptor(database, "merging", LineMode.MERGE);
+        mergingCart.add(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+        shoppingCart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+        Path file = tempDir.resolve("merged.snapshot");
+
+        CartSnapshot.export(database, file);
+        database.resetDatabase();
+        CartSnapshot.restore(database, file);
+        mergingCart.add(new Item(ItemType.OTHER, "Pen", 3, 1.5));
+
+        assertThat(mergingCart.getItems()).extracting(Item::getQuantity).containsExactly(5);
+        // restoring the merged line a second time would give the product two rows
+        assertThatThrownBy(() -> CartSnapshot.restore(database, file)).isInstanceOf(RuntimeException.class);
+        assertThat(mergingCart.getItems()).hasSize(1);
+    }
+
+    // inserts the rows with one batch and one commit, which is much faster than adding them one by one
+    private static void insertRows(int count) throws SQLException {
+        Connection connection = database.getConnection();
+        try (var ps = connection.prepareStatement("insert into shoppingcart (name, type, quantity, priceperunit) values (?,?,?,?)")) {
+            for (int i = 0; i < count; i++) {
+                ps.setString(1, "Item" + i);
+                ps.setString(2, ItemType.OTHER.name());
+                ps.setInt(3, 1);
+                ps.setDouble(4, 1.0);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.DeliveryPrice;
+import org.example.Amazon.Cost.ExtraCostForElectronics;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.RegularCost;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Add and quote throughput of ConcurrentShoppingCart against a cart backed by a
+ * synchronized ArrayList, with writer threads adding while reader threads quote.
+ * Run with: java -cp target/classes:target/test-classes org.example.Amazon.ConcurrentShoppingCartBenchmark [writers] [readers]
+ */
+public class ConcurrentShoppingCartBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        for (int round = 0; round < 3; round++) {
+            run("synchronized ArrayList", new SynchronizedListCart(), writers, readers);
+            run("ConcurrentShoppingCart", new ConcurrentShoppingCart(), writers, readers);
+        }
+    }
+
+    private static void run(String name, ShoppingCart cart, int writers, int readers) throws InterruptedException {
+        Amazon amazon = new Amazon(cart, List.of(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics()));
+        AtomicBoolean running = new AtomicBoolean(true);
+        LongAdder adds = new LongAdder();
+        LongAdder quotes = new LongAdder();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            threads.add(new Thread(() -> {
+                Item item = new Item(ItemType.OTHER, "Item", 1, 2.5);
+                while (running.get()) {
+                    cart.add(item);
+                    adds.increment();
+                }
+            }));
+        }
+        for (int i = 0; i < readers; i++) {
+            threads.add(new Thread(() -> {
+                while (running.get()) {
+                    amazon.calculate();
+                    quotes.increment();
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        Thread.sleep(2_000);
+        running.set(false);
+        for (Thread thread : threads)
+            thread.join();
+
+        System.out.printf("%-24s %,12.0f adds/s %,12.0f quotes/s (cart ended with %,d lines)%n",
+                name, adds.sum() / 2.0, quotes.sum() / 2.0, cart.numberOfItems());
+    }
+
+    // the baseline: every call takes the list's lock, and a quote walks the whole list under it
+    private static class SynchronizedListCart implements AggregatingCart {
+        private final List<Item> items = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void add(Item item) {
+            items.add(item);
+        }
+
+        @Override
+        public List<Item> getItems() {
+            synchronized (items) {
+                return new ArrayList<>(items);
+            }
+        }
+
+        @Override
+        public int numberOfItems() {
+            return items.size();
+        }
+
+        @Override
+        public CartAggregates aggregates() {
+            synchronized (items) {
+                return CartAggregates.of(items);
+            }
+        }
+
+        @Override
+        public void remove(String name, ItemType type) {
+            items.removeIf(item -> item.getType() == type && item.getName().equals(name));
+        }
+
+        @Override
+        public void updateQuantity(String name, ItemType type, int quantity) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            items.clear();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.*;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ConcurrentShoppingCartTest {
+
+    @Test
+    @DisplayName("specification-based")
+    void testSnapshotIsNotChangedByLaterWrites() {
+        //Test: a snapshot keeps the lines it was taken with
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        cart.add(new Item(ItemType.OTHER, "Book", 2, 10.0));
+        AggregatingCart snapshot = cart.snapshot();
+
+        cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        cart.updateQuantity("Book", ItemType.OTHER, 5);
+
+        assertThat(snapshot.getItems()).extracting(Item::getQuantity).containsExactly(2);
+        assertThat(snapshot.aggregates().getSubtotal()).isEqualTo(20.0);
+        assertThat(cart.getItems()).extracting(Item::getName).containsExactly("Book", "Phone");
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(350.0);
+        assertThatThrownBy(() -> snapshot.add(new Item(ItemType.OTHER, "Pen", 1, 1.0)))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRemoveAndClear() {
+        //Test: removals rebuild the lines and the aggregates
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        cart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+
+        cart.remove("Phone", ItemType.ELECTRONIC);
+        assertThat(cart.numberOfItems()).isEqualTo(1);
+        assertThat(cart.aggregates().hasElectronic()).isFalse();
+
+        cart.clear();
+        assertThat(cart.getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testConcurrentWritersAndPricingReaders() throws Exception {
+        //Test: readers always price a consistent cart while writers append
+        ConcurrentShoppingCart cart = new ConcurrentShoppingCart();
+        Amazon amazon = new Amazon(cart, List.of(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics(),
+                items -> items.size() * 1000.0));
+        int writers = 8;
+        int itemsPerWriter = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<String> inconsistency = new AtomicReference<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            threads.add(new Thread(() -> {
+                await(start);
+                for (int i = 0; i < itemsPerWriter; i++)
+                    cart.add(new Item(i % 100 == 0 ? ItemType.ELECTRONIC : ItemType.OTHER, "w" + writer + "-" + i, 1, 1.0));
+            }));
+        }
+        Thread reader = new Thread(() -> {
+            await(start);
+            while (writing.get()) {
+                AggregatingCart snapshot = cart.snapshot();
+                List<Item> items = snapshot.getItems();
+                CartAggregates aggregates = snapshot.aggregates();
+                if (items.size() != aggregates.getLineCount() || CartAggregates.of(items).getSubtotal() != aggregates.getSubtotal())
+                    inconsistency.set("snapshot of " + items.size() + " lines reported " + aggregates.getLineCount());
+
+                // every line costs 1.0 and the last rule adds 1000 per line, so a consistent
+                // quote is 1001 per line plus the fixed delivery and electronics costs
+                double quote = amazon.calculate();
+                double perLine = Math.floor(quote / 1001.0);
+                if (quote - perLine * 1001.0 > 27.5)
+                    inconsistency.set("quote " + quote + " mixes cart versions");
+            }
+        });
+
+        threads.forEach(Thread::start);
+        reader.start();
+        start.countDown();
+        for (Thread thread : threads)
+            thread.join();
+        writing.set(false);
+        reader.join();
+
+        assertThat(inconsistency.get()).isNull();
+        assertThat(cart.numberOfItems()).isEqualTo(writers * itemsPerWriter);
+        assertThat(cart.getItems()).extracting(Item::getName).doesNotHaveDuplicates();
+        assertThat(cart.aggregates().getElectronicLines()).isEqualTo(writers * itemsPerWriter / 100);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.Amazon.Cost;
+
+import org.example.Amazon.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Time to price a huge cart with the sequential RegularCost and in fork/join mode
+ * with pools of 1 to N threads. Every fork/join run must print the same bits.
+ * Run with: java -cp target/classes:target/test-classes org.example.Amazon.Cost.RegularCostScalingBenchmark
+ */
+public class RegularCostScalingBenchmark {
+
+    private static final int LINES = 2_000_000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+        List<Item> cart = new ArrayList<>(LINES);
+        for (int i = 0; i < LINES; i++)
+            cart.add(new Item(ItemType.OTHER, "item" + i, 1 + random.nextInt(5), random.nextDouble() * 100));
+
+        report("sequential", new RegularCost(), cart);
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            report("fork/join x" + parallelism, new RegularCost(pool, 100_000), cart);
+            pool.shutdown();
+        }
+    }
+
+    private static void report(String name, RegularCost rule, List<Item> cart) {
+        double subtotal = 0;
+        for (int i = 0; i < 5; i++)
+            subtotal = rule.priceToAggregate(cart);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++)
+            subtotal = rule.priceToAggregate(cart);
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%-15s %7.2f ms per cart, subtotal %s (bits %x)%n",
+                name, elapsed / 1e6 / ROUNDS, subtotal, Double.doubleToLongBits(subtotal));
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.Amazon.Cost;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.InMemoryShoppingCart;
+import org.example.Amazon.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.*;
+
+class RegularCostTest {
+
+    // prices spread over many orders of magnitude so rounding depends on the order of additions
+    private static List<Item> hugeCart(int lines) {
+        Random random = new Random(7);
+        List<Item> cart = new ArrayList<>(lines);
+        for (int i = 0; i < lines; i++) {
+            double price = random.nextDouble() * Math.pow(10, random.nextInt(12) - 4);
+            cart.add(new Item(ItemType.OTHER, "item" + i, 1 + random.nextInt(5), price));
+        }
+        return cart;
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSameBitsForAnyParallelism() {
+        //Test: the fork/join subtotal does not depend on pool size or threshold
+        List<Item> cart = hugeCart(150_000);
+        long expected = Double.doubleToLongBits(new RegularCost(ForkJoinPool.commonPool(), Integer.MAX_VALUE).priceToAggregate(cart));
+
+        for (int parallelism : new int[] {1, 2, 3, 8}) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                for (int threshold : new int[] {0, 10_000, 100_000}) {
+                    double subtotal = new RegularCost(pool, threshold).priceToAggregate(cart);
+                    assertThat(Double.doubleToLongBits(subtotal)).isEqualTo(expected);
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+        assertThat(Double.doubleToLongBits(new RegularCost(ForkJoinPool.commonPool(), 0).priceToAggregate(new LinkedList<>(cart))))
+                .isEqualTo(expected);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCompensatedSumIsAccurate() {
+        //Test: the fork/join subtotal is the correctly rounded exact sum
+        List<Item> cart = hugeCart(50_000);
+        BigDecimal exact = BigDecimal.ZERO;
+        for (Item item : cart)
+            exact = exact.add(new BigDecimal(item.getPricePerUnit() * item.getQuantity()));
+
+        double subtotal = new RegularCost(ForkJoinPool.commonPool(), 0).priceToAggregate(cart);
+        assertThat(subtotal).isCloseTo(exact.doubleValue(), within(Math.ulp(exact.doubleValue())));
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testForkJoinModeSkipsCachedSubtotal() {
+        //Test: fork/join mode prices from the items and small carts match the sequential sum
+        RegularCost forkJoin = new RegularCost(ForkJoinPool.commonPool(), 100_000);
+        assertThat(forkJoin.canPriceFromAggregates()).isFalse();
+        assertThat(new RegularCost().canPriceFromAggregates()).isTrue();
+
+        InMemoryShoppingCart cart = new InMemoryShoppingCart();
+        cart.add(new Item(ItemType.OTHER, "Pen", 4, 2.5));
+        cart.add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 1000.0));
+        assertThat(new Amazon(cart, List.of(forkJoin)).calculate()).isEqualTo(1010.0);
+        assertThat(forkJoin.priceToAggregate(List.of())).isEqualTo(0.0);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.CartAggregates;
+import org.example.Amazon.Cost.ItemType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class InMemoryShoppingCartTest {
+
+    @Test
+    @DisplayName("specification-based")
+    void testAppendModeKeepsEveryLine() {
+        //Test: default mode adds a line per add
+        InMemoryShoppingCart cart = new InMemoryShoppingCart();
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 2.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 2.0));
+
+        assertThat(cart.numberOfItems()).isEqualTo(2);
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(4.0);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testMergeModeCombinesSameProduct() {
+        //Test: same name and type merge, and the first price is kept
+        InMemoryShoppingCart cart = new InMemoryShoppingCart(LineMode.MERGE);
+        cart.add(new Item(ItemType.OTHER, "Pen", 2, 2.0));
+        cart.add(new Item(ItemType.ELECTRONIC, "Pen", 1, 30.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 3, 2.5));
+        cart.add(new Item(ItemType.OTHER, null, 1, 1.0));
+        cart.add(new Item(ItemType.OTHER, null, 1, 1.0));
+
+        assertThat(cart.numberOfItems()).isEqualTo(3);
+        assertThat(cart.getItems().get(0).getQuantity()).isEqualTo(5);
+        assertThat(cart.getItems().get(0).getPricePerUnit()).isEqualTo(2.0);
+        assertThat(cart.getItems().get(2).getQuantity()).isEqualTo(2);
+
+        CartAggregates aggregates = cart.aggregates();
+        assertThat(aggregates.getSubtotal()).isEqualTo(42.0);
+        assertThat(aggregates.getLineCount()).isEqualTo(3);
+        assertThat(aggregates.getElectronicLines()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRemoveUpdateAndClearKeepAggregatesInStep() {
+        //Test: aggregates follow removals, updates and clear
+        InMemoryShoppingCart cart = new InMemoryShoppingCart(LineMode.MERGE);
+        cart.add(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+        cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        cart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+
+        cart.remove("Phone", ItemType.ELECTRONIC);
+        cart.updateQuantity("Book", ItemType.OTHER, 3);
+        cart.add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+
+        assertThat(cart.getItems()).extracting(Item::getQuantity).containsExactly(2, 4);
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(43.0);
+        assertThat(cart.aggregates().getElectronicLines()).isZero();
+
+        cart.clear();
+        assertThat(cart.numberOfItems()).isZero();
+        assertThat(cart.aggregates().getSubtotal()).isZero();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testAppendModeRemovesEveryMatchingLine() {
+        //Test: duplicates in append mode are all removed or updated
+        InMemoryShoppingCart cart = new InMemoryShoppingCart();
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 2.0));
+        cart.add(new Item(ItemType.OTHER, "Cup", 1, 5.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 2.0));
+
+        cart.updateQuantity("Pen", ItemType.OTHER, 2);
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(13.0);
+
+        cart.updateQuantity("Pen", ItemType.OTHER, -1);
+        assertThat(cart.getItems()).extracting(Item::getName).containsExactly("Cup");
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testMergeModeRemoveKeepsIndexAndAggregates() {
+        //Test: removing a product moves the last line into its slot, and later edits still find every line
+        InMemoryShoppingCart cart = new InMemoryShoppingCart(LineMode.MERGE);
+        cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+        cart.add(new Item(ItemType.OTHER, null, 1, 4.0));
+
+        cart.remove("Phone", ItemType.ELECTRONIC);
+        cart.updateQuantity(null, ItemType.OTHER, 3);
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+
+        assertThat(cart.getItems()).extracting(Item::getName, Item::getQuantity)
+                .containsExactly(tuple(null, 3), tuple("Pen", 3));
+        CartAggregates aggregates = cart.aggregates();
+        assertThat(aggregates.getSubtotal()).isEqualTo(16.5);
+        assertThat(aggregates.getElectronicLines()).isZero();
+        assertThat(aggregates.getLineCount()).isEqualTo(2);
+
+        cart.remove(null, ItemType.OTHER);
+        cart.remove("Pen", ItemType.OTHER);
+        cart.remove("Pen", ItemType.OTHER);
+        assertThat(cart.aggregates().getSubtotal()).isZero();
+        assertThat(cart.numberOfItems()).isZero();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testRemovingALargeLineKeepsTheSmallOnes() {
+        //Test: the running subtotal does not lose small lines to a large one that goes away again
+        InMemoryShoppingCart cart = new InMemoryShoppingCart(LineMode.MERGE);
+        cart.add(new Item(ItemType.OTHER, "Yacht", 1, 1e16));
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.0));
+        cart.remove("Yacht", ItemType.OTHER);
+
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(1.0);
+
+        cart.add(new Item(ItemType.OTHER, "Yacht", 1, 1e16));
+        cart.updateQuantity("Pen", ItemType.OTHER, 3);
+        cart.updateQuantity("Yacht", ItemType.OTHER, 0);
+
+        assertThat(cart.aggregates().getSubtotal()).isEqualTo(3.0);
+    }
+}
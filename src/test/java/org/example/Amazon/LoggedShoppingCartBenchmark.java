@@ -0,0 +1,55 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-item cost of ShoppingCartAdaptor.add (insert + commit) against
+ * LoggedShoppingCart under each fsync policy, with several writer threads.
+ * Run with: java -cp target/classes:target/test-classes:hsqldb.jar org.example.Amazon.LoggedShoppingCartBenchmark
+ */
+public class LoggedShoppingCartBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int ITEMS_PER_THREAD = 20_000;
+
+    public static void main(String[] args) throws Exception {
+        Database database = new Database();
+        for (int round = 0; round < 3; round++) {
+            database.resetDatabase();
+            report("jdbc adaptor", new ShoppingCartAdaptor(database));
+
+            for (FsyncPolicy policy : FsyncPolicy.values()) {
+                Path file = Files.createTempFile("cart", ".log");
+                try (LoggedShoppingCart cart = new LoggedShoppingCart(file, policy)) {
+                    report("log " + policy, cart);
+                }
+                Files.delete(file);
+            }
+        }
+        database.close();
+    }
+
+    private static void report(String name, ShoppingCart cart) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < ITEMS_PER_THREAD; i++)
+                    cart.add(new Item(ItemType.OTHER, "Item" + i, 1, 9.99));
+            }));
+        }
+
+        long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+        long elapsed = System.nanoTime() - start;
+
+        int items = THREADS * ITEMS_PER_THREAD;
+        System.out.printf("%-16s %,12.0f adds/s %8.2f us/add%n", name, items / (elapsed / 1e9), elapsed / 1e3 / items);
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoggedShoppingCartTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("specification-based")
+    void testItemsSurviveReopen() {
+        //Test: items are recovered from the log
+        Path file = tempDir.resolve("cart.log");
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            cart.add(new Item(ItemType.OTHER, "Java Book", 2, 45.0));
+            cart.add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 1200.0));
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            assertThat(cart.numberOfItems()).isEqualTo(2);
+            assertThat(cart.getItems()).extracting(Item::getName).containsExactly("Java Book", "Laptop");
+            assertThat(cart.getItems().get(1).getType()).isEqualTo(ItemType.ELECTRONIC);
+
+            cart.add(new Item(ItemType.OTHER, "Pen", 5, 1.5));
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.NEVER)) {
+            assertThat(cart.getItems()).extracting(Item::getName).containsExactly("Java Book", "Laptop", "Pen");
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testReplayIntoAnotherCart() {
+        //Test: the log can be replayed into any ShoppingCart
+        Path file = tempDir.resolve("cart.log");
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.PERIODIC)) {
+            cart.add(new Item(ItemType.OTHER, "Mug", 1, 8.0));
+            cart.add(new Item(ItemType.OTHER, null, 3, 2.0));
+        }
+
+        InMemoryShoppingCart target = new InMemoryShoppingCart();
+
+        assertThat(LoggedShoppingCart.replay(file, target)).isEqualTo(2);
+        assertThat(target.getItems()).extracting(Item::getName).containsExactly("Mug", null);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testTornRecordIsDropped() throws Exception {
+        //Test: recovery stops at a record whose checksum does not match
+        Path file = tempDir.resolve("cart.log");
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            cart.add(new Item(ItemType.OTHER, "First", 1, 1.0));
+            cart.add(new Item(ItemType.OTHER, "Second", 1, 1.0));
+        }
+        // flip a byte inside the second record's payload
+        int firstRecord = 8 + 1 + 1 + 2 + "First".length() + 4 + 8;
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(firstRecord + 8 + 5);
+            raw.write('X');
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            assertThat(cart.getItems()).extracting(Item::getName).containsExactly("First");
+
+            cart.add(new Item(ItemType.OTHER, "Third", 1, 1.0));
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            assertThat(cart.getItems()).extracting(Item::getName).containsExactly("First", "Third");
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testNameTooLongForTheLogIsRejected() {
+        //Test: a name whose UTF-8 length does not fit the record is refused and leaves cart and log alone
+        Path file = tempDir.resolve("cart.log");
+        String longest = "a".repeat(Short.MAX_VALUE);
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            cart.add(new Item(ItemType.OTHER, longest, 1, 1.0));
+            assertThatThrownBy(() -> cart.add(new Item(ItemType.OTHER, "\u00e9".repeat(Short.MAX_VALUE / 2 + 1), 1, 1.0)))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThat(cart.numberOfItems()).isEqualTo(1);
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.NEVER)) {
+            assertThat(cart.getItems()).extracting(Item::getName).containsExactly(longest);
+        }
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testLogGrowsAndConcurrentWriters() throws Exception {
+        //Test: more data than the initial mapping, written by several threads
+        Path file = tempDir.resolve("cart.log");
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                threads.add(new Thread(() -> {
+                    for (int i = 0; i < 10_000; i++)
+                        cart.add(new Item(ItemType.OTHER, "Item-" + thread + "-" + i, 1, 1.0));
+                }));
+            }
+            threads.forEach(Thread::start);
+            for (Thread thread : threads)
+                thread.join();
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.NEVER)) {
+            assertThat(cart.numberOfItems()).isEqualTo(40_000);
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRemoveUpdateAndClearAreLogged() {
+        //Test: every kind of change is replayed on reopen
+        Path file = tempDir.resolve("cart.log");
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT, LineMode.MERGE)) {
+            cart.add(new Item(ItemType.OTHER, "Old", 1, 1.0));
+            cart.clear();
+            cart.add(new Item(ItemType.OTHER, "Pen", 2, 1.5));
+            cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.5));
+            cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+            cart.add(new Item(ItemType.OTHER, null, 1, 4.0));
+            cart.remove("Phone", ItemType.ELECTRONIC);
+            cart.updateQuantity(null, ItemType.OTHER, 6);
+        }
+
+        try (LoggedShoppingCart cart = new LoggedShoppingCart(file, FsyncPolicy.ON_COMMIT, LineMode.MERGE)) {
+            assertThat(cart.getItems()).extracting(Item::getQuantity).containsExactly(3, 6);
+            assertThat(cart.aggregates().getSubtotal()).isEqualTo(28.5);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Add and read throughput of the cart against each persistence backend.
+ * Run with: java -cp target/classes:target/test-classes:hsqldb.jar org.example.Amazon.PersistenceProviderBenchmark [jdbc-url...]
+ */
+public class PersistenceProviderBenchmark {
+
+    private static final int ITEMS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("cart-store");
+
+        Map<String, PersistenceProvider> providers = new LinkedHashMap<>();
+        providers.put("in-memory", PersistenceProvider.inMemory("bench"));
+        providers.put("file (tuned)", PersistenceProvider.embeddedFile(dir.resolve("tuned")));
+        providers.put("file (defaults)", PersistenceProvider.embeddedFile(dir.resolve("plain"), Map.of()));
+        for (String url : args)
+            providers.put(url, PersistenceProvider.jdbc(url, "SA", ""));
+
+        for (Map.Entry<String, PersistenceProvider> entry : providers.entrySet()) {
+            Database database = new Database(entry.getValue());
+            database.resetDatabase();
+            ShoppingCart cart = new ShoppingCartAdaptor(database);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITEMS; i++)
+                cart.add(new Item(ItemType.OTHER, "Item" + i, 1, 9.99));
+            long add = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int read = cart.getItems().size();
+            long scan = System.nanoTime() - start;
+
+            System.out.printf("%-16s %,10.0f adds/s, full read of %,d rows in %d ms%n",
+                    entry.getKey(), ITEMS / (add / 1e9), read, scan / 1_000_000);
+            database.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class PersistenceProviderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("specification-based")
+    void testResetKeepsConnection() throws Exception {
+        //Test: resetDatabase reuses the open connection instead of leaking it
+        Database database = new Database(PersistenceProvider.inMemory("reset-test"));
+        var connection = database.getConnection();
+
+        database.resetDatabase();
+
+        assertThat(database.getConnection()).isSameAs(connection);
+        database.close();
+        assertThat(connection.isClosed()).isTrue();
+        assertThat(database.getConnection()).isNotSameAs(connection);
+        database.close();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSeparateInMemoryDatabases() {
+        //Test: named in-memory providers do not share rows
+        Database first = new Database(PersistenceProvider.inMemory("first"));
+        Database second = new Database(PersistenceProvider.inMemory("second"));
+        first.resetDatabase();
+        second.resetDatabase();
+
+        new ShoppingCartAdaptor(first).add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+
+        assertThat(new ShoppingCartAdaptor(first).getItems()).hasSize(1);
+        assertThat(new ShoppingCartAdaptor(second).getItems()).isEmpty();
+        assertThat(first.getConnection()).isNotSameAs(second.getConnection());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testEmbeddedFileSurvivesClose() {
+        //Test: file mode keeps rows after the connection is closed
+        PersistenceProvider provider = PersistenceProvider.embeddedFile(tempDir.resolve("cart"));
+        Database database = new Database(provider);
+        new ShoppingCartAdaptor(database).add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 999.0));
+        database.close();
+
+        Database reopened = new Database(PersistenceProvider.embeddedFile(tempDir.resolve("cart")));
+
+        assertThat(new ShoppingCartAdaptor(reopened).getItems()).extracting(Item::getName).containsExactly("Laptop");
+        reopened.close();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testOldSchemaIsMigrated() throws Exception {
+        //Test: a file database from before cart ids and merged lines gets the new columns and keeps its rows
+        PersistenceProvider provider = PersistenceProvider.embeddedFile(tempDir.resolve("old"), Map.of());
+        try (var connection = provider.openConnection();
+             var statement = connection.createStatement()) {
+            statement.execute("create table shoppingcart (type varchar(100), name varchar(100), quantity int, priceperunit double)");
+            statement.execute("insert into shoppingcart values ('OTHER', 'Book', 2, 10.0)");
+            connection.commit();
+        }
+
+        Database database = new Database(provider);
+        ShoppingCart cart = new ShoppingCartAdaptor(database, ShoppingCartAdaptor.DEFAULT_CART, LineMode.MERGE);
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 1, 1.0));
+
+        assertThat(cart.getItems()).extracting(Item::getName, Item::getQuantity)
+                .containsExactlyInAnyOrder(tuple("Book", 2), tuple("Pen", 2));
+        database.close();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testTunedFileModeUsesCachedTable() throws Exception {
+        //Test: the tuned file settings create the table CACHED so the row cache and nio data file apply
+        Database tuned = new Database(PersistenceProvider.embeddedFile(tempDir.resolve("tuned")));
+        Database plain = new Database(PersistenceProvider.embeddedFile(tempDir.resolve("plain"), Map.of()));
+
+        assertThat(tableType(tuned)).isEqualTo("CACHED");
+        assertThat(tableType(plain)).isEqualTo("MEMORY");
+        tuned.close();
+        plain.close();
+    }
+
+    private static String tableType(Database database) throws Exception {
+        try (var ps = database.getConnection().prepareStatement(
+                "select hsqldb_type from information_schema.system_tables where table_name = 'SHOPPINGCART'")) {
+            var rs = ps.executeQuery();
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testFromSystemProperties() {
+        //Test: cart.store.url selects a JDBC provider, otherwise the default in-memory one
+        assertThat(PersistenceProvider.fromSystemProperties()).isEqualTo(PersistenceProvider.inMemory());
+
+        System.setProperty("cart.store.url", "jdbc:hsqldb:mem:from-properties");
+        try {
+            assertThat(PersistenceProvider.fromSystemProperties())
+                    .isEqualTo(PersistenceProvider.jdbc("jdbc:hsqldb:mem:from-properties", "SA", ""));
+        } finally {
+            System.clearProperty("cart.store.url");
+        }
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testSchemaIsBootstrappedLazily() {
+        //Test: new Database() opens nothing; the first getConnection opens once and creates the table
+        AtomicInteger opened = new AtomicInteger();
+        PersistenceProvider inner = PersistenceProvider.inMemory("lazy-test");
+        PersistenceProvider counting = () -> {
+            opened.incrementAndGet();
+            return inner.openConnection();
+        };
+        Database database = new Database(counting);
+        assertThat(opened).hasValue(0);
+
+        new ShoppingCartAdaptor(database).add(new Item(ItemType.OTHER, "Book", 1, 10.0));
+        new Database(counting).getConnection();
+
+        assertThat(opened).hasValue(1);
+        assertThat(new ShoppingCartAdaptor(database).getItems()).hasSize(1);
+        database.close();
+    }
+}
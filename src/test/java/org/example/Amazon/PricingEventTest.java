@@ -0,0 +1,74 @@
+package org.example.Amazon;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.example.Amazon.Cost.DeliveryPrice;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.RegularCost;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PricingEventTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("specification-based")
+    void testPricingAndSqlEventsAreRecorded() throws Exception {
+        //Test: with the thresholds lowered, every rule and SQL call shows up with its details
+        Database database = new Database(PersistenceProvider.inMemory("jfr-test"));
+        ShoppingCartAdaptor cart = new ShoppingCartAdaptor(database);
+        Amazon amazon = new Amazon(cart, List.of(new RegularCost(), new DeliveryPrice()));
+
+        Path file = tempDir.resolve("pricing.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("org.example.Pricing").withThreshold(Duration.ZERO);
+            recording.enable("org.example.Sql").withThreshold(Duration.ZERO);
+            recording.start();
+            amazon.addToCart(new Item(ItemType.ELECTRONIC, "Laptop", 2, 999.0));
+            amazon.calculate();
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            database.close();
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("org.example.Pricing"))
+                .extracting(event -> event.getClass("rule").getName())
+                .containsExactly(RegularCost.class.getName(), DeliveryPrice.class.getName());
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("org.example.Pricing"))
+                .allSatisfy(event -> assertThat(event.getInt("cartSize")).isEqualTo(1));
+        assertThat(events).filteredOn(event -> event.getEventType().getName().equals("org.example.Sql"))
+                .extracting(event -> event.getString("sql"))
+                .contains("insert into shoppingcart (cartid, name, type, quantity, priceperunit) values (?,?,?,?,?)");
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testBundledConfigurationEnablesEvents() throws Exception {
+        //Test: shop.jfc enables every shop event with a threshold
+        Configuration configuration;
+        try (var reader = new InputStreamReader(getClass().getResourceAsStream("/shop.jfc"), StandardCharsets.UTF_8)) {
+            configuration = Configuration.create(reader);
+        }
+
+        for (String event : List.of("org.example.Pricing", "org.example.Sql", "org.example.BookLookup",
+                "org.example.BuyBook", "org.example.Checkout")) {
+            assertThat(configuration.getSettings()).containsEntry(event + "#enabled", "true");
+            assertThat(configuration.getSettings()).containsKey(event + "#threshold");
+        }
+    }
+}
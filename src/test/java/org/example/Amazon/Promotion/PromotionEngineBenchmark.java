@@ -0,0 +1,66 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.PriceRule;
+import org.example.Amazon.Cost.RegularCost;
+import org.example.Amazon.InMemoryShoppingCart;
+import org.example.Amazon.Item;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Quote latency with 10 to 10k promotions, as one PromotionEngine rule against
+ * every promotion as its own rule in Amazon's list.
+ * Run with: java -cp target/classes:target/test-classes org.example.Amazon.Promotion.PromotionEngineBenchmark
+ */
+public class PromotionEngineBenchmark {
+
+    private static final int PRODUCTS = 20_000;
+    private static final int CART_LINES = 50;
+
+    public static void main(String[] args) {
+        Random random = new Random(1);
+        InMemoryShoppingCart cart = new InMemoryShoppingCart();
+        for (int i = 0; i < CART_LINES; i++)
+            cart.add(new Item(i % 5 == 0 ? ItemType.ELECTRONIC : ItemType.OTHER, "P" + random.nextInt(PRODUCTS), 1 + random.nextInt(4), 9.99));
+
+        for (int count : new int[]{10, 100, 1_000, 10_000}) {
+            List<Promotion> promotions = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String product = "P" + random.nextInt(PRODUCTS);
+                switch (i % 10) {
+                    case 0 -> promotions.add(new TypeDiscount(random.nextBoolean() ? ItemType.OTHER : ItemType.ELECTRONIC, 1));
+                    case 1, 2, 3, 4 -> promotions.add(new ProductCoupon(product, 2.0));
+                    default -> promotions.add(new QuantityDiscount(product, 1 + random.nextInt(5), 1.0));
+                }
+            }
+
+            List<PriceRule> linearRules = new ArrayList<>();
+            linearRules.add(new RegularCost());
+            linearRules.addAll(promotions);
+            Amazon linear = new Amazon(cart, linearRules);
+            Amazon indexed = new Amazon(cart, List.of(new RegularCost(), new PromotionEngine(promotions)));
+
+            System.out.printf("%,6d promotions: linear %,10.1f us/quote, indexed %,8.1f us/quote%n",
+                    count, time(linear), time(indexed));
+        }
+    }
+
+    private static double time(Amazon amazon) {
+        double sink = 0;
+        for (int i = 0; i < 200; i++)
+            sink += amazon.calculate();
+
+        int iterations = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++)
+            sink += amazon.calculate();
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42)
+            System.out.println();
+        return elapsed / 1e3 / iterations;
+    }
+}
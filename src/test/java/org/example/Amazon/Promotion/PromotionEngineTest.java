@@ -0,0 +1,85 @@
+package org.example.Amazon.Promotion;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Cost.*;
+import org.example.Amazon.InMemoryShoppingCart;
+import org.example.Amazon.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+class PromotionEngineTest {
+
+    @Test
+    @DisplayName("specification-based")
+    void testEachPromotionKind() {
+        //Test: type discount, product coupon and quantity threshold
+        InMemoryShoppingCart cart = new InMemoryShoppingCart();
+        cart.add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 1000.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 4, 2.0));
+
+        PromotionEngine engine = new PromotionEngine(List.of(
+                new TypeDiscount(ItemType.ELECTRONIC, 10),
+                new ProductCoupon("Pen", 20.0),
+                new QuantityDiscount("Pen", 4, 1.0),
+                new QuantityDiscount("Pen", 5, 100.0),
+                new ProductCoupon("Mug", 3.0)));
+        Amazon amazon = new Amazon(cart, List.of(new RegularCost(), engine));
+
+        // 1008 - 100 (10% of electronics) - 8 (coupon capped at the pens' price) - 1 (4 pens)
+        assertThat(amazon.calculate()).isEqualTo(899.0);
+        assertThat(engine.size()).isEqualTo(5);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testOnlyTriggeredPromotionsAreEvaluated() {
+        //Test: promotions whose trigger is not in the cart are never asked for a discount
+        List<Item> cart = List.of(new Item(ItemType.OTHER, "Book", 2, 10.0));
+        int[] evaluated = {0};
+        PromotionEngine engine = new PromotionEngine();
+        for (int i = 0; i < 1_000; i++) {
+            engine.add(new QuantityDiscount("Product" + i, 1, 1.0) {
+                @Override
+                public double discount(CartTally tally) {
+                    evaluated[0]++;
+                    return super.discount(tally);
+                }
+            });
+        }
+        engine.add(new QuantityDiscount("Book", 2, 5.0));
+
+        assertThat(engine.priceToAggregate(cart)).isEqualTo(-5.0);
+        assertThat(evaluated[0]).isZero();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testSameTotalAsLinearEvaluation() {
+        //Test: the index gives the same result as evaluating every promotion
+        Random random = new Random(7);
+        List<Promotion> promotions = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            switch (random.nextInt(3)) {
+                case 0 -> promotions.add(new TypeDiscount(random.nextBoolean() ? ItemType.OTHER : ItemType.ELECTRONIC, random.nextInt(5)));
+                case 1 -> promotions.add(new ProductCoupon("P" + random.nextInt(50), random.nextInt(10)));
+                default -> promotions.add(new QuantityDiscount("P" + random.nextInt(50), 1 + random.nextInt(6), random.nextInt(10)));
+            }
+        }
+        List<Item> cart = new ArrayList<>();
+        for (int i = 0; i < 30; i++)
+            cart.add(new Item(random.nextBoolean() ? ItemType.OTHER : ItemType.ELECTRONIC, "P" + random.nextInt(50), 1 + random.nextInt(3), 5.0));
+
+        double linear = 0;
+        for (Promotion promotion : promotions)
+            linear += promotion.priceToAggregate(cart);
+
+        assertThat(new PromotionEngine(promotions).priceToAggregate(cart)).isCloseTo(linear, within(1e-9));
+        assertThat(new PromotionEngine(promotions).priceToAggregate(List.of())).isZero();
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.ItemType;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart insert throughput with 1, 2, 4 and 8 in-memory shards under concurrent clients.
+ * Run with: java -cp target/classes:target/test-classes:$HSQLDB_JAR org.example.Amazon.ShardedCartStoreBenchmark
+ */
+public class ShardedCartStoreBenchmark {
+
+    private static final int CLIENTS = 8;
+    private static final int CARTS_PER_CLIENT = 200;
+    private static final int LINES_PER_CART = 20;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (int shards : new int[] {1, 2, 4, 8}) {
+            try (ShardedCartStore store = ShardedCartStore.inMemory("benchmark-" + shards, shards)) {
+                for (int round = 0; round < 3; round++) {
+                    store.resetDatabase();
+                    int run = round;
+                    ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+                    long start = System.nanoTime();
+                    for (int c = 0; c < CLIENTS; c++) {
+                        int client = c;
+                        clients.execute(() -> {
+                            for (int i = 0; i < CARTS_PER_CLIENT; i++) {
+                                ShoppingCart cart = store.cart("cart-" + run + "-" + client + "-" + i);
+                                for (int line = 0; line < LINES_PER_CART; line++)
+                                    cart.add(new Item(ItemType.OTHER, "item-" + line, 1, 9.99));
+                            }
+                        });
+                    }
+                    clients.shutdown();
+                    clients.awaitTermination(10, TimeUnit.MINUTES);
+                    long elapsed = System.nanoTime() - start;
+                    System.out.printf("%d shard(s), round %d: %,.0f inserts/s%n",
+                            shards, round, CLIENTS * CARTS_PER_CLIENT * LINES_PER_CART / (elapsed / 1e9));
+                }
+            }
+        }
+    }
+}
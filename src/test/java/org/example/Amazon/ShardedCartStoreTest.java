@@ -0,0 +1,88 @@
+package org.example.Amazon;
+
+import org.example.Amazon.Cost.DeliveryPrice;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.RegularCost;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+
+class ShardedCartStoreTest {
+
+    private ShardedCartStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = ShardedCartStore.inMemory("sharded-test", 4);
+        store.resetDatabase();
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCartLivesOnOneShard() {
+        //Test: a cart's lines are stored and read back through the shard its id maps to
+        ShardedShoppingCart cart = store.cart("cart-1");
+        cart.add(new Item(ItemType.ELECTRONIC, "Laptop", 1, 1000.0));
+        cart.add(new Item(ItemType.OTHER, "Pen", 3, 2.0));
+
+        assertThat(new ShoppingCartAdaptor(store.shardFor("cart-1"), "cart-1").getItems()).hasSize(2);
+        assertThat(store.cart("cart-1").getItems()).extracting(Item::getName).containsExactly("Laptop", "Pen");
+        assertThat(new Amazon(store.cart("cart-1"), List.of(new RegularCost(), new DeliveryPrice())).calculate())
+                .isEqualTo(1006.0 + 5.0);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCartsSpreadOverShards() {
+        //Test: many cart ids use every shard and stay apart from each other
+        Set<Database> used = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            used.add(store.shardFor("cart-" + i));
+            store.cart("cart-" + i).add(new Item(ItemType.OTHER, "Book", i + 1, 1.0));
+        }
+
+        assertThat(used).hasSize(4);
+        assertThat(store.cart("cart-42").aggregates().getSubtotal()).isEqualTo(43.0);
+        assertThat(store.shardFor("cart-42")).isSameAs(store.shardFor("cart-42"));
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testEditsAndDeletesGoToOwningShard() {
+        //Test: remove, update, clear and deleteCarts only touch the carts they name
+        List<String> cartIds = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            cartIds.add("cart-" + i);
+            ShardedShoppingCart cart = store.cart("cart-" + i, LineMode.MERGE);
+            cart.add(new Item(ItemType.OTHER, "Pen", 1, 2.0));
+            cart.add(new Item(ItemType.OTHER, "Pen", 1, 2.0));
+            cart.add(new Item(ItemType.ELECTRONIC, "Phone", 1, 300.0));
+        }
+
+        store.cart("cart-0").updateQuantity("Pen", ItemType.OTHER, 5);
+        store.cart("cart-1").remove("Phone", ItemType.ELECTRONIC);
+        store.cart("cart-2").clear();
+        store.deleteCarts(cartIds.subList(3, 8));
+
+        assertThat(store.cart("cart-0").aggregates().getSubtotal()).isEqualTo(310.0);
+        assertThat(store.cart("cart-1").getItems()).extracting(Item::getQuantity).containsExactly(2);
+        assertThat(store.cart("cart-2").getItems()).isEmpty();
+        for (String cartId : cartIds.subList(3, 8))
+            assertThat(store.cart(cartId).getItems()).isEmpty();
+        assertThat(store.cart("cart-9").aggregates().getLineCount()).isEqualTo(2);
+        assertThatThrownBy(() -> new ShardedCartStore(List.of())).isInstanceOf(IllegalArgumentException.class);
+    }
+}
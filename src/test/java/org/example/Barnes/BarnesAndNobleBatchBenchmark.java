@@ -0,0 +1,62 @@
+package org.example.Barnes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Throughput of getPriceForCarts against calling getPriceForCart once per order.
+ * Run with: java -cp target/classes:target/test-classes org.example.Barnes.BarnesAndNobleBatchBenchmark
+ */
+public class BarnesAndNobleBatchBenchmark {
+
+    private static final int CATALOG_SIZE = 2_000;
+    private static final int ORDERS = 5_000;
+    private static final int LINES_PER_ORDER = 5;
+    // simulated round trip to the catalog for every findByISBN
+    private static final long LOOKUP_COST_NANOS = 2_000;
+
+    public static void main(String[] args) {
+        Map<String, Book> catalog = new HashMap<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String isbn = "isbn-" + i;
+            catalog.put(isbn, new Book(isbn, 10 + i % 50, 1_000_000));
+        }
+        BookDatabase database = ISBN -> {
+            long end = System.nanoTime() + LOOKUP_COST_NANOS;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return catalog.get(ISBN);
+        };
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(database, (book, amount) -> { });
+
+        // skewed orders so popular books repeat across the batch, as in real batch jobs
+        Random random = new Random(42);
+        List<Map<String, Integer>> orders = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Map<String, Integer> order = new HashMap<>();
+            for (int j = 0; j < LINES_PER_ORDER; j++) {
+                int book = (int) (CATALOG_SIZE * Math.pow(random.nextDouble(), 3));
+                order.merge("isbn-" + book, 1 + random.nextInt(3), Integer::sum);
+            }
+            orders.add(order);
+        }
+
+        for (int round = 0; round < 5; round++) {
+            long start = System.nanoTime();
+            for (Map<String, Integer> order : orders)
+                barnesAndNoble.getPriceForCart(order);
+            long loop = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            barnesAndNoble.getPriceForCarts(orders);
+            long batch = System.nanoTime() - start;
+
+            System.out.printf("round %d: per-order loop %,.0f orders/s, batch %,.0f orders/s%n",
+                    round, ORDERS / (loop / 1e9), ORDERS / (batch / 1e9));
+        }
+    }
+}
@@ -5,7 +5,10 @@
 
 package org.example.Barnes;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -287,4 +290,70 @@ class BarnesAndNobleTest {
         boolean differentIsbn = resultBook.equals(diffISBN);
         Assertions.assertThat(differentIsbn).isFalse();
     }
+
+    @Test
+    @DisplayName("specification-based")
+    void testBatchNullOrders() {
+        //Test: null batch
+        List<PurchaseSummary> result = this.barnesAndNoble.getPriceForCarts((List)null);
+        Assertions.assertThat(result).isNull();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testBatchLooksUpEachBookOnce() {
+        //Test: the same ISBN in several orders is fetched once
+        Book book1 = new Book("111-111", 10, 100);
+        Book book2 = new Book("222-222", 20, 100);
+        Mockito.when(this.mockBookDatabase.findByISBN("111-111")).thenReturn(book1);
+        Mockito.when(this.mockBookDatabase.findByISBN("222-222")).thenReturn(book2);
+
+        Map<String, Integer> order1 = new LinkedHashMap();
+        order1.put("111-111", 1);
+        order1.put("222-222", 2);
+        Map<String, Integer> order2 = new LinkedHashMap();
+        order2.put("111-111", 3);
+
+        List<PurchaseSummary> result = this.barnesAndNoble.getPriceForCarts(Arrays.asList(order1, order2));
+
+        Assertions.assertThat(result).hasSize(2);
+        Assertions.assertThat(result.get(0).getTotalPrice()).isEqualTo(50);
+        Assertions.assertThat(result.get(1).getTotalPrice()).isEqualTo(30);
+        ((BookDatabase)Mockito.verify(this.mockBookDatabase, Mockito.times(1))).findByISBN("111-111");
+        ((BookDatabase)Mockito.verify(this.mockBookDatabase, Mockito.times(1))).findByISBN("222-222");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testBatchAllocatesStockInOrder() {
+        //Test: earlier orders get the stock first
+        Book book = new Book("333-333", 10, 5);
+        Mockito.when(this.mockBookDatabase.findByISBN("333-333")).thenReturn(book);
+
+        Map<String, Integer> order1 = new HashMap();
+        order1.put("333-333", 4);
+        Map<String, Integer> order2 = new HashMap();
+        order2.put("333-333", 3);
+
+        List<PurchaseSummary> result = this.barnesAndNoble.getPriceForCarts(Arrays.asList(order1, order2));
+
+        Assertions.assertThat(result.get(0).getTotalPrice()).isEqualTo(40);
+        Assertions.assertThat(result.get(0).getUnavailable()).isEmpty();
+        Assertions.assertThat(result.get(1).getTotalPrice()).isEqualTo(10);
+        Assertions.assertThat((Integer)result.get(1).getUnavailable().get(book)).isEqualTo(2);
+        ((BuyBookProcess)Mockito.verify(this.mockBuyBookProcess)).buyBook(book, 4);
+        ((BuyBookProcess)Mockito.verify(this.mockBuyBookProcess)).buyBook(book, 1);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testBatchNullOrderInList() {
+        //Test: a null order inside the batch gives a null summary
+        List<PurchaseSummary> result = this.barnesAndNoble.getPriceForCarts(Arrays.asList(null, new HashMap()));
+
+        Assertions.assertThat(result).hasSize(2);
+        Assertions.assertThat(result.get(0)).isNull();
+        Assertions.assertThat(result.get(1).getTotalPrice()).isEqualTo(0);
+        Mockito.verifyNoInteractions(new Object[]{this.mockBookDatabase, this.mockBuyBookProcess});
+    }
 }
@@ -0,0 +1,97 @@
+package org.example.Barnes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class BloomFilteredBookDatabaseTest {
+    private BookDatabase mockBookDatabase;
+    private BloomFilteredBookDatabase filteredDatabase;
+
+    @BeforeEach
+    void setUp() {
+        this.mockBookDatabase = Mockito.mock(BookDatabase.class);
+        this.filteredDatabase = new BloomFilteredBookDatabase(this.mockBookDatabase, List.of("111-111", "222-222"), 0.01);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testKnownIsbnGoesToCatalog() {
+        //Test: known ISBNs are looked up
+        Book book = new Book("111-111", 20, 5);
+        Mockito.when(this.mockBookDatabase.findByISBN("111-111")).thenReturn(book);
+
+        Assertions.assertThat(this.filteredDatabase.findByISBN("111-111")).isSameAs(book);
+        Assertions.assertThat(this.filteredDatabase.getRejectedLookups()).isZero();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testUnknownIsbnNeverReachesCatalog() {
+        //Test: an unknown ISBN is rejected without a catalog call
+        Assertions.assertThat(this.filteredDatabase.findByISBN("999-999")).isNull();
+        Assertions.assertThat(this.filteredDatabase.findByISBN(null)).isNull();
+
+        Assertions.assertThat(this.filteredDatabase.getRejectedLookups()).isEqualTo(2);
+        Mockito.verifyNoInteractions(this.mockBookDatabase);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testAddedIsbnBecomesKnown() {
+        //Test: books added after construction are looked up
+        this.filteredDatabase.add("333-333");
+        this.filteredDatabase.findByISBN("333-333");
+
+        ((BookDatabase)Mockito.verify(this.mockBookDatabase)).findByISBN("333-333");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testUnknownBookInSummary() {
+        //Test: an unknown ISBN is reported in the summary instead of throwing
+        Book book = new Book("111-111", 20, 5);
+        Mockito.when(this.mockBookDatabase.findByISBN("111-111")).thenReturn(book);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(this.filteredDatabase, Mockito.mock(BuyBookProcess.class));
+
+        Map<String, Integer> order = new HashMap<>();
+        order.put("111-111", 1);
+        order.put("bogus", 4);
+
+        PurchaseSummary result = barnesAndNoble.getPriceForCart(order);
+        List<PurchaseSummary> batch = barnesAndNoble.getPriceForCarts(List.of(order));
+
+        Assertions.assertThat(result.getTotalPrice()).isEqualTo(20);
+        Assertions.assertThat(result.getUnknown()).containsEntry("bogus", 4);
+        Assertions.assertThat(batch.get(0).getTotalPrice()).isEqualTo(20);
+        Assertions.assertThat(batch.get(0).getUnknown()).containsEntry("bogus", 4);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testFalsePositiveRate() {
+        //Test: the measured false-positive rate stays near the configured one
+        List<String> known = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++)
+            known.add("978-" + i);
+        BloomFilter filter = new BloomFilter(known.size(), 0.01);
+        known.forEach(filter::add);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("979-" + i))
+                falsePositives++;
+        }
+
+        Assertions.assertThat(known).allMatch(filter::mightContain);
+        Assertions.assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        Assertions.assertThatThrownBy(() -> new BloomFilter(10, 1.5)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.Barnes;
+
+import com.sun.management.ThreadMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bytes allocated and time per checkout for getPriceForCart(Map) against a
+ * reused CheckoutContext, measured with the thread allocation counter.
+ * Run with: java -cp target/classes:target/test-classes org.example.Barnes.CheckoutContextBenchmark
+ */
+public class CheckoutContextBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000;
+    private static final int CHECKOUTS = 1_000_000;
+    private static final int LINES_PER_ORDER = 5;
+
+    public static void main(String[] args) {
+        Map<String, Book> catalog = new HashMap<>();
+        String[] isbns = new String[CATALOG_SIZE];
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            isbns[i] = "isbn-" + i;
+            catalog.put(isbns[i], new Book(isbns[i], 10, Integer.MAX_VALUE));
+        }
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog::get, (book, amount) -> { });
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+
+        for (int round = 0; round < 5; round++) {
+            long blackhole = 0;
+            long bytes = threads.getThreadAllocatedBytes(id);
+            long start = System.nanoTime();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                Map<String, Integer> order = new HashMap<>();
+                for (int line = 0; line < LINES_PER_ORDER; line++)
+                    order.put(isbns[(i * 7 + line * 13) % CATALOG_SIZE], 1 + line);
+                blackhole += barnesAndNoble.getPriceForCart(order).getTotalPrice();
+            }
+            report("map    ", round, System.nanoTime() - start, threads.getThreadAllocatedBytes(id) - bytes, blackhole);
+
+            CheckoutContext context = CheckoutContext.forCurrentThread();
+            bytes = threads.getThreadAllocatedBytes(id);
+            start = System.nanoTime();
+            for (int i = 0; i < CHECKOUTS; i++) {
+                context.reset();
+                for (int line = 0; line < LINES_PER_ORDER; line++)
+                    context.add(isbns[(i * 7 + line * 13) % CATALOG_SIZE], 1 + line);
+                blackhole += barnesAndNoble.getPriceForCart(context).getTotalPrice();
+            }
+            report("context", round, System.nanoTime() - start, threads.getThreadAllocatedBytes(id) - bytes, blackhole);
+        }
+    }
+
+    private static void report(String name, int round, long nanos, long bytes, long blackhole) {
+        System.out.printf("%s round %d: %6.1f ns/checkout, %7.1f bytes/checkout (%d)%n",
+                name, round, (double) nanos / CHECKOUTS, (double) bytes / CHECKOUTS, blackhole);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.Barnes;
+
+import com.sun.management.ThreadMXBean;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+class CheckoutContextTest {
+    private BookDatabase mockBookDatabase;
+    private BuyBookProcess mockBuyBookProcess;
+    private BarnesAndNoble barnesAndNoble;
+
+    @BeforeEach
+    void setUp() {
+        this.mockBookDatabase = Mockito.mock(BookDatabase.class);
+        this.mockBuyBookProcess = Mockito.mock(BuyBookProcess.class);
+        Mockito.when(this.mockBookDatabase.findByISBN("111-111")).thenReturn(new Book("111-111", 10, 5));
+        Mockito.when(this.mockBookDatabase.findByISBN("222-222")).thenReturn(new Book("222-222", 20, 1));
+        this.barnesAndNoble = new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSameResultAsMapOrder() {
+        //Test: a context order is priced like the same order given as a map
+        CheckoutContext context = new CheckoutContext()
+                .add("111-111", 2)
+                .add("222-222", 3)
+                .add("999-999", 1)
+                .add("111-111", 1);
+
+        PurchaseSummary summary = this.barnesAndNoble.getPriceForCart(context);
+        PurchaseSummary expected = this.barnesAndNoble.getPriceForCart(Map.of("111-111", 3, "222-222", 3, "999-999", 1));
+
+        Assertions.assertThat(summary).isSameAs(context.getSummary());
+        Assertions.assertThat(summary.getTotalPrice()).isEqualTo(expected.getTotalPrice()).isEqualTo(50);
+        Assertions.assertThat(summary.getUnavailable()).isEqualTo(expected.getUnavailable());
+        Assertions.assertThat(summary.getUnknown()).isEqualTo(expected.getUnknown());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testResetClearsOrderAndSummary() {
+        //Test: reusing a context starts from an empty order and summary
+        CheckoutContext context = CheckoutContext.forCurrentThread().add("999-999", 1).add("222-222", 4);
+        this.barnesAndNoble.getPriceForCart(context);
+
+        CheckoutContext reused = CheckoutContext.forCurrentThread();
+        Assertions.assertThat(reused).isSameAs(context);
+        Assertions.assertThat(reused.lineCount()).isZero();
+        Assertions.assertThat(reused.getSummary().getTotalPrice()).isZero();
+        Assertions.assertThat(reused.getSummary().getUnknown()).isEmpty();
+        Assertions.assertThat(reused.getSummary().getUnavailable()).isEmpty();
+
+        for (int i = 0; i < 40; i++)
+            reused.add("978-" + i, 1);
+        Assertions.assertThat(reused.lineCount()).isEqualTo(40);
+        Assertions.assertThat(reused.isbnAt(39)).isEqualTo("978-39");
+        Assertions.assertThat(reused.quantityAt(39)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testSteadyStateCheckoutDoesNotAllocate() {
+        //Test: once warmed up, reusing a context allocates nothing per checkout
+        Map<String, Book> catalog = new HashMap<>();
+        String[] isbns = new String[8];
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = "978-" + i;
+            catalog.put(isbns[i], new Book(isbns[i], 10 + i, Integer.MAX_VALUE));
+        }
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog::get, (book, amount) -> { });
+        CheckoutContext context = new CheckoutContext();
+        long total = 0;
+
+        // the optimising compiler may still be busy with other classes, so measure
+        // rounds until one runs fully compiled code
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < 50 && allocated >= 1_024; round++) {
+            long before = threads.getThreadAllocatedBytes(id);
+            for (int i = 0; i < 100_000; i++)
+                total += checkout(barnesAndNoble, context, isbns, i);
+            allocated = threads.getThreadAllocatedBytes(id) - before;
+        }
+
+        Assertions.assertThat(total).isPositive();
+        Assertions.assertThat(allocated).isLessThan(1_024);
+    }
+
+    private static int checkout(BarnesAndNoble barnesAndNoble, CheckoutContext context, String[] isbns, int i) {
+        context.reset()
+                .add(isbns[i % isbns.length], 1)
+                .add(isbns[(i + 3) % isbns.length], 2);
+        return barnesAndNoble.getPriceForCart(context).getTotalPrice();
+    }
+}
@@ -0,0 +1,51 @@
+package org.example.Barnes;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+class CheckoutEventTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("specification-based")
+    void testCheckoutEventsAreRecorded() throws Exception {
+        //Test: a checkout records its lookups, purchases and the checkout itself
+        BookDatabase mockBookDatabase = Mockito.mock(BookDatabase.class);
+        Mockito.when(mockBookDatabase.findByISBN("111-111")).thenReturn(new Book("111-111", 10, 5));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(mockBookDatabase, Mockito.mock(BuyBookProcess.class));
+
+        Path file = this.tempDir.resolve("checkout.jfr");
+        try (Recording recording = new Recording()) {
+            for (String event : List.of("org.example.BookLookup", "org.example.BuyBook", "org.example.Checkout"))
+                recording.enable(event).withThreshold(Duration.ZERO);
+            recording.start();
+            barnesAndNoble.getPriceForCart(Map.of("111-111", 2, "222-222", 1));
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Assertions.assertThat(events).filteredOn(event -> event.getEventType().getName().equals("org.example.BookLookup"))
+                .extracting(event -> event.getString("isbn") + "=" + event.getBoolean("found"))
+                .containsExactlyInAnyOrder("111-111=true", "222-222=false");
+        Assertions.assertThat(events).filteredOn(event -> event.getEventType().getName().equals("org.example.BuyBook"))
+                .extracting(event -> event.getString("isbn") + "x" + event.getInt("quantity"))
+                .containsExactly("111-111x2");
+        Assertions.assertThat(events).filteredOn(event -> event.getEventType().getName().equals("org.example.Checkout"))
+                .extracting(event -> event.getInt("orderLines"))
+                .containsExactly(2);
+    }
+}
@@ -0,0 +1,67 @@
+package org.example.Barnes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Order latency percentiles against a catalog with a slow tail, with and without hedging.
+ * Run with: java -cp target/classes:target/test-classes org.example.Barnes.HedgedBookDatabaseBenchmark
+ */
+public class HedgedBookDatabaseBenchmark {
+
+    private static final int CATALOG_SIZE = 1_000;
+    private static final int ORDERS = 2_000;
+    private static final int LINES_PER_ORDER = 5;
+    // 2% of lookups take 20ms instead of 200us
+    private static final long FAST_MICROS = 200;
+    private static final long SLOW_MICROS = 20_000;
+    private static final double SLOW_SHARE = 0.02;
+
+    public static void main(String[] args) {
+        Map<String, Book> books = new HashMap<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String isbn = "isbn-" + i;
+            books.put(isbn, new Book(isbn, 10, 1_000_000));
+        }
+        BookDatabase simulated = new SimulatedBookDatabase(books, FAST_MICROS, SLOW_MICROS, SLOW_SHARE);
+        ExecutorService executor = Executors.newCachedThreadPool();
+        HedgedBookDatabase hedged = new HedgedBookDatabase(simulated, executor, 0.95, Duration.ofMillis(1));
+
+        Random random = new Random(42);
+        List<Map<String, Integer>> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Map<String, Integer> order = new HashMap<>();
+            for (int j = 0; j < LINES_PER_ORDER; j++)
+                order.put("isbn-" + random.nextInt(CATALOG_SIZE), 1);
+            orders.add(order);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            report("plain ", new BarnesAndNoble(simulated, (book, amount) -> { }), orders);
+            report("hedged", new BarnesAndNoble(hedged, (book, amount) -> { }), orders);
+        }
+        System.out.printf("hedged lookups %,d, won by the hedge %,d, hedge delay %s%n",
+                hedged.getHedgedLookups(), hedged.getHedgeWins(), hedged.getHedgeDelay());
+        executor.shutdownNow();
+    }
+
+    private static void report(String name, BarnesAndNoble barnesAndNoble, List<Map<String, Integer>> orders) {
+        long[] latencies = new long[orders.size()];
+        for (int i = 0; i < latencies.length; i++) {
+            long start = System.nanoTime();
+            barnesAndNoble.getPriceForCart(orders.get(i));
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%s p50 %6.2f ms, p99 %6.2f ms, max %6.2f ms%n", name,
+                latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6,
+                latencies[latencies.length - 1] / 1e6);
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.Barnes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HedgedBookDatabaseTest {
+    private ExecutorService executor;
+    private final CountDownLatch neverReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        this.neverReleased.countDown();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testFastLookupIsNotHedged() {
+        //Test: a lookup that answers before the hedge delay is sent once
+        BookDatabase mockBookDatabase = Mockito.mock(BookDatabase.class);
+        Book book = new Book("111-111", 10, 1);
+        Mockito.when(mockBookDatabase.findByISBN("111-111")).thenReturn(book);
+        HedgedBookDatabase hedged = new HedgedBookDatabase(mockBookDatabase, this.executor, 0.95, Duration.ofSeconds(1));
+
+        Assertions.assertThat(hedged.findByISBN("111-111")).isSameAs(book);
+        Assertions.assertThat(hedged.getHedgedLookups()).isZero();
+        ((BookDatabase)Mockito.verify(mockBookDatabase, Mockito.times(1))).findByISBN("111-111");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSlowLookupIsAnsweredByHedge() throws InterruptedException {
+        //Test: when the first copy stalls, the second copy answers and the stalled copy is cancelled
+        Book book = new Book("111-111", 10, 1);
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch cancelled = new CountDownLatch(1);
+        BookDatabase stallsOnce = ISBN -> {
+            if (calls.getAndIncrement() == 0) {
+                await(this.neverReleased);
+                if (Thread.currentThread().isInterrupted())
+                    cancelled.countDown();
+            }
+            return book;
+        };
+        HedgedBookDatabase hedged = new HedgedBookDatabase(stallsOnce, this.executor, 0.95, Duration.ofMillis(20));
+
+        Assertions.assertThat(hedged.findByISBN("111-111")).isSameAs(book);
+        Assertions.assertThat(hedged.getHedgedLookups()).isEqualTo(1);
+        Assertions.assertThat(hedged.getHedgeWins()).isEqualTo(1);
+        Assertions.assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testLateFailureLeavesItToTheHedge() {
+        //Test: a first copy that fails after the hedge delay does not fail the lookup while the hedge can still answer
+        Book book = new Book("111-111", 10, 1);
+        AtomicInteger calls = new AtomicInteger();
+        BookDatabase failsLate = ISBN -> {
+            if (calls.getAndIncrement() == 0) {
+                sleep(Duration.ofMillis(40));
+                throw new IllegalStateException("replica down");
+            }
+            sleep(Duration.ofMillis(100));
+            return book;
+        };
+        HedgedBookDatabase hedged = new HedgedBookDatabase(failsLate, this.executor, 0.95, Duration.ofMillis(20));
+
+        Assertions.assertThat(hedged.findByISBN("111-111")).isSameAs(book);
+        Assertions.assertThat(hedged.getHedgeWins()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testTimedOutCopiesAreCancelled() throws InterruptedException {
+        //Test: copies still running when the budget runs out are cancelled
+        CountDownLatch cancelled = new CountDownLatch(2);
+        BookDatabase stalls = ISBN -> {
+            await(this.neverReleased);
+            if (Thread.currentThread().isInterrupted())
+                cancelled.countDown();
+            return null;
+        };
+        HedgedBookDatabase hedged = new HedgedBookDatabase(stalls, this.executor, 0.95, Duration.ofMillis(10));
+
+        Assertions.assertThatThrownBy(() -> HedgedBookDatabase.withinBudget(Duration.ofMillis(50),
+                        () -> hedged.findByISBN("111-111")))
+                .isInstanceOf(LatencyBudgetExceededException.class);
+        Assertions.assertThat(cancelled.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testOrderBudgetIsEnforced() {
+        //Test: an order whose lookups never answer fails once its budget runs out
+        BookDatabase stalls = ISBN -> {
+            await(this.neverReleased);
+            return null;
+        };
+        HedgedBookDatabase hedged = new HedgedBookDatabase(stalls, this.executor, 0.95, Duration.ofMillis(10));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(hedged, Mockito.mock(BuyBookProcess.class));
+
+        long start = System.nanoTime();
+        Assertions.assertThatThrownBy(() -> HedgedBookDatabase.withinBudget(Duration.ofMillis(100),
+                        () -> barnesAndNoble.getPriceForCart(Map.of("111-111", 1, "222-222", 1))))
+                .isInstanceOf(LatencyBudgetExceededException.class);
+        Assertions.assertThat(System.nanoTime() - start).isLessThan(Duration.ofSeconds(2).toNanos());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testBudgetRunsOutBeforeAnythingIsBought() {
+        //Test: when the second line's lookup stalls past the budget, the first line has not been bought either
+        BookDatabase secondStalls = ISBN -> {
+            if (ISBN.equals("222-222"))
+                await(this.neverReleased);
+            return new Book(ISBN, 10, 5);
+        };
+        HedgedBookDatabase hedged = new HedgedBookDatabase(secondStalls, this.executor, 0.95, Duration.ofMillis(10));
+        BuyBookProcess mockBuyBookProcess = Mockito.mock(BuyBookProcess.class);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(hedged, mockBuyBookProcess);
+        Map<String, Integer> order = new LinkedHashMap<>();
+        order.put("111-111", 1);
+        order.put("222-222", 1);
+        CheckoutContext context = new CheckoutContext().add("111-111", 1).add("222-222", 1);
+
+        Assertions.assertThatThrownBy(() -> HedgedBookDatabase.withinBudget(Duration.ofMillis(100),
+                        () -> barnesAndNoble.getPriceForCart(order)))
+                .isInstanceOf(LatencyBudgetExceededException.class);
+        Assertions.assertThatThrownBy(() -> HedgedBookDatabase.withinBudget(Duration.ofMillis(100),
+                        () -> barnesAndNoble.getPriceForCart(context)))
+                .isInstanceOf(LatencyBudgetExceededException.class);
+        Mockito.verifyNoInteractions(mockBuyBookProcess);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testBudgetFollowsFannedOutLookups() {
+        //Test: lookups run on an executor still stop when the caller's budget runs out
+        BookDatabase stalls = ISBN -> {
+            await(this.neverReleased);
+            return null;
+        };
+        HedgedBookDatabase hedged = new HedgedBookDatabase(stalls, this.executor, 0.95, Duration.ofMillis(10));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(hedged, Mockito.mock(BuyBookProcess.class));
+
+        Assertions.assertThatThrownBy(() -> HedgedBookDatabase.withinBudget(Duration.ofMillis(100),
+                        () -> barnesAndNoble.lookUpBooks(List.of(Map.of("111-111", 1, "222-222", 1)), this.executor)))
+                .isInstanceOf(LatencyBudgetExceededException.class);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testFailuresAndHedgeDelay() {
+        //Test: a failure is rethrown, and the hedge delay follows the recorded latencies
+        BookDatabase fails = ISBN -> {
+            throw new IllegalStateException("catalog down");
+        };
+        HedgedBookDatabase failing = new HedgedBookDatabase(fails, this.executor, 0.95, Duration.ofMillis(10));
+        Assertions.assertThatThrownBy(() -> failing.findByISBN("111-111")).isInstanceOf(IllegalStateException.class);
+        Assertions.assertThatThrownBy(() -> new HedgedBookDatabase(fails, this.executor, 1.5, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        HedgedBookDatabase hedged = new HedgedBookDatabase(new SimulatedBookDatabase(Map.of(), 2_000, 2_000, 0),
+                this.executor, 0.5, Duration.ofNanos(1));
+        for (int i = 0; i < 64; i++)
+            hedged.findByISBN("111-111");
+        Assertions.assertThat(hedged.getHedgeDelay()).isGreaterThanOrEqualTo(Duration.ofMillis(2));
+        Assertions.assertThat(HedgedBookDatabase.withinBudget(Duration.ofSeconds(1), () -> "done")).isEqualTo("done");
+    }
+
+    private static void sleep(Duration duration) {
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package org.example.Barnes;
+
+import com.sun.management.ThreadMXBean;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class HotBookCacheTest {
+
+    @Test
+    @DisplayName("specification-based")
+    void testHeavyHittersFindsHotIsbns() {
+        //Test: the most requested ISBNs make the top K, most frequent first
+        HeavyHitters heavyHitters = new HeavyHitters(3);
+        for (int i = 0; i < 10_000; i++) {
+            heavyHitters.record("cold-" + i);
+            if (i % 2 == 0)
+                heavyHitters.record("hot-a");
+            if (i % 4 == 0)
+                heavyHitters.record("hot-b");
+            if (i % 8 == 0)
+                heavyHitters.record("hot-c");
+        }
+
+        Assertions.assertThat(heavyHitters.hotIsbns()).containsExactly("hot-a", "hot-b", "hot-c");
+        Assertions.assertThat(heavyHitters.estimate("hot-a")).isGreaterThanOrEqualTo(5_000);
+
+        heavyHitters.decay();
+        Assertions.assertThat(heavyHitters.estimate("hot-a")).isLessThan(5_000);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testRecordDoesNotAllocate() {
+        //Test: the hot path allocates nothing once warmed up
+        HeavyHitters heavyHitters = new HeavyHitters(8);
+        String[] isbns = new String[64];
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = "978-" + i;
+            isbns[i].hashCode();
+        }
+        for (int i = 0; i < 200_000; i++)
+            heavyHitters.record(isbns[i % isbns.length]);
+
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 200_000; i++)
+            heavyHitters.record(isbns[i % isbns.length]);
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        Assertions.assertThat(allocated).isLessThan(1_024);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testPinnedBookSellsFromShardedStock() {
+        //Test: after a refresh the hot book is no longer looked up per order
+        BookDatabase mockBookDatabase = Mockito.mock(BookDatabase.class);
+        BuyBookProcess mockBuyBookProcess = Mockito.mock(BuyBookProcess.class);
+        Book book = new Book("111-111", 10, 5);
+        Mockito.when(mockBookDatabase.findByISBN("111-111")).thenReturn(book);
+        HotBookCache hotBooks = new HotBookCache(new HeavyHitters(4), mockBookDatabase);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(mockBookDatabase, mockBuyBookProcess, hotBooks);
+
+        Map<String, Integer> order = new HashMap();
+        order.put("111-111", 2);
+        barnesAndNoble.getPriceForCart(order);
+        hotBooks.refresh();
+        Assertions.assertThat(hotBooks.pinnedIsbns()).containsExactly("111-111");
+
+        PurchaseSummary second = barnesAndNoble.getPriceForCart(order);
+        PurchaseSummary third = barnesAndNoble.getPriceForCart(order);
+        PurchaseSummary fourth = barnesAndNoble.getPriceForCart(order);
+
+        Assertions.assertThat(second.getTotalPrice()).isEqualTo(20);
+        Assertions.assertThat(third.getTotalPrice()).isEqualTo(20);
+        Assertions.assertThat(fourth.getTotalPrice()).isEqualTo(10);
+        Assertions.assertThat((Integer)fourth.getUnavailable().get(book)).isEqualTo(1);
+        // once for the first order and once to pin it
+        ((BookDatabase)Mockito.verify(mockBookDatabase, Mockito.times(2))).findByISBN("111-111");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testBatchCheckoutSharesThePinnedStock() {
+        //Test: batch orders count towards the hot ISBNs and sell from the same counter as single orders
+        SnapshotBookDatabase catalog = new SnapshotBookDatabase(List.of(new Book("111-111", 10, 5)));
+        BuyBookProcess mockBuyBookProcess = Mockito.mock(BuyBookProcess.class);
+        HotBookCache hotBooks = new HotBookCache(new HeavyHitters(4), catalog);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog, mockBuyBookProcess, hotBooks);
+
+        barnesAndNoble.getPriceForCarts(List.of(Map.of("111-111", 1)));
+        hotBooks.refresh();
+        Assertions.assertThat(hotBooks.pinnedIsbns()).containsExactly("111-111");
+
+        List<PurchaseSummary> batch = barnesAndNoble.getPriceForCarts(List.of(Map.of("111-111", 2), Map.of("111-111", 2)));
+        PurchaseSummary single = barnesAndNoble.getPriceForCart(Map.of("111-111", 2));
+
+        Assertions.assertThat(batch).extracting(PurchaseSummary::getTotalPrice).containsExactly(20, 20);
+        Assertions.assertThat(single.getTotalPrice()).isEqualTo(10);
+        Assertions.assertThat(hotBooks.get("111-111").getStock().available()).isZero();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRefreshPicksUpCatalogChanges() {
+        //Test: a book that stays hot gets the catalog's new price and restocked quantity on the next refresh
+        SnapshotBookDatabase catalog = new SnapshotBookDatabase(List.of(new Book("111-111", 10, 2)));
+        HotBookCache hotBooks = new HotBookCache(new HeavyHitters(4), catalog);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog, Mockito.mock(BuyBookProcess.class), hotBooks);
+        barnesAndNoble.getPriceForCart(Map.of("111-111", 2));
+        hotBooks.refresh();
+        Assertions.assertThat(barnesAndNoble.getPriceForCart(Map.of("111-111", 3)).getTotalPrice()).isEqualTo(20);
+
+        hotBooks.refresh();
+        Assertions.assertThat(hotBooks.get("111-111").getStock().available()).isZero();
+        catalog.update(Map.of("111-111", 12), Map.of("111-111", 4));
+        hotBooks.refresh();
+
+        PurchaseSummary restocked = barnesAndNoble.getPriceForCart(Map.of("111-111", 3));
+        Assertions.assertThat(restocked.getTotalPrice()).isEqualTo(36);
+        Assertions.assertThat(hotBooks.get("111-111").getStock().available()).isEqualTo(1);
+
+        catalog.remove(List.of("111-111"));
+        hotBooks.refresh();
+        Assertions.assertThat(hotBooks.pinnedIsbns()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testShardedStockNeverOversells() throws Exception {
+        //Test: concurrent buyers never take more than the stock
+        ShardedStock stock = new ShardedStock(10_000, 4);
+        AtomicInteger sold = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2_000; i++)
+                    sold.addAndGet(stock.take(1 + i % 3));
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads)
+            thread.join();
+
+        Assertions.assertThat(sold.get()).isEqualTo(10_000);
+        Assertions.assertThat(stock.available()).isZero();
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.Barnes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and heap use of OrderPipeline while buyBook is slow, so the
+ * producer runs far ahead of fulfilment and has to be held back.
+ * Run with: java -Xmx256m -cp target/classes:target/test-classes org.example.Barnes.OrderPipelineBenchmark
+ */
+public class OrderPipelineBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int ORDERS = 200_000;
+    private static final int LINES_PER_ORDER = 4;
+    // simulated cost of every buyBook call
+    private static final long FULFIL_COST_NANOS = 5_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, Book> catalog = new HashMap<>();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String isbn = "isbn-" + i;
+            catalog.put(isbn, new Book(isbn, 10, Integer.MAX_VALUE));
+        }
+        // reports what it bought, so the two fulfilment workers may run side by side
+        PartialBuyBookProcess slow = (book, amount) -> {
+            long end = System.nanoTime() + FULFIL_COST_NANOS;
+            while (System.nanoTime() < end) {
+                Thread.onSpinWait();
+            }
+            return amount;
+        };
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog::get, slow);
+
+        for (int batch : new int[] {1, 16, 128}) {
+            OrderPipeline pipeline = new OrderPipeline(barnesAndNoble, 256, batch, 1, 2);
+            CountDownLatch done = new CountDownLatch(1);
+            AtomicLong received = new AtomicLong();
+            pipeline.subscribe(new Flow.Subscriber<>() {
+                public void onSubscribe(Flow.Subscription subscription) { subscription.request(Long.MAX_VALUE); }
+                public void onNext(PurchaseSummary summary) { received.incrementAndGet(); }
+                public void onError(Throwable throwable) { throwable.printStackTrace(); done.countDown(); }
+                public void onComplete() { done.countDown(); }
+            });
+
+            Random random = new Random(42);
+            Runtime runtime = Runtime.getRuntime();
+            long maxUsed = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < ORDERS; i++) {
+                Map<String, Integer> order = new HashMap<>();
+                for (int j = 0; j < LINES_PER_ORDER; j++)
+                    order.put("isbn-" + random.nextInt(CATALOG_SIZE), 1);
+                pipeline.submit(order);
+                if (i % 10_000 == 0)
+                    maxUsed = Math.max(maxUsed, runtime.totalMemory() - runtime.freeMemory());
+            }
+            pipeline.close();
+            done.await();
+            long elapsed = System.nanoTime() - start;
+            pipeline.shutdownNow();
+
+            System.out.printf("batch %3d: %,.0f orders/s, %,d summaries, max heap used %,d MB%n",
+                    batch, ORDERS / (elapsed / 1e9), received.get(), maxUsed >> 20);
+        }
+    }
+}
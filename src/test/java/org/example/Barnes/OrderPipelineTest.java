@@ -0,0 +1,195 @@
+package org.example.Barnes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+class OrderPipelineTest {
+    private BookDatabase mockBookDatabase;
+    private BuyBookProcess mockBuyBookProcess;
+    private OrderPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        this.mockBookDatabase = Mockito.mock(BookDatabase.class);
+        this.mockBuyBookProcess = Mockito.mock(BuyBookProcess.class);
+        Mockito.when(this.mockBookDatabase.findByISBN("111-111")).thenReturn(new Book("111-111", 10, 1_000));
+        Mockito.when(this.mockBookDatabase.findByISBN("222-222")).thenReturn(new Book("222-222", 5, 1_000));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (this.pipeline != null)
+            this.pipeline.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testEveryOrderGetsASummary() throws Exception {
+        //Test: each submitted order comes out as one summary and the stream completes
+        this.pipeline = new OrderPipeline(new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess), 16, 8, 2, 1);
+        Collector collector = new Collector();
+        this.pipeline.subscribe(collector);
+
+        for (int i = 0; i < 100; i++)
+            this.pipeline.submit(Map.of("111-111", 1, "222-222", 2));
+        this.pipeline.submit(Map.of("999-999", 3));
+        this.pipeline.close();
+
+        collector.done.get(10, TimeUnit.SECONDS);
+        Assertions.assertThat(collector.summaries).hasSize(101);
+        Assertions.assertThat(collector.summaries).filteredOn(summary -> summary.getTotalPrice() == 20).hasSize(100);
+        Assertions.assertThat(collector.summaries).filteredOn(summary -> summary.getUnknown().containsKey("999-999")).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSummariesComeOutInSubmitOrder() throws Exception {
+        //Test: with parallel lookups and fulfilment, the n-th summary is still for the n-th order
+        Random random = new Random(7);
+        BookDatabase jittery = ISBN -> {
+            try {
+                Thread.sleep(random.nextInt(3));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Book(ISBN, 1, 1_000_000);
+        };
+        PartialBuyBookProcess buysEverything = (book, amount) -> amount;
+        this.pipeline = new OrderPipeline(new BarnesAndNoble(jittery, buysEverything), 64, 2, 4, 4);
+        Collector collector = new Collector();
+        this.pipeline.subscribe(collector);
+
+        for (int i = 1; i <= 200; i++)
+            this.pipeline.submit(Map.of("111-" + i % 5, i));
+        this.pipeline.close();
+
+        collector.done.get(20, TimeUnit.SECONDS);
+        Assertions.assertThat(collector.summaries).extracting(PurchaseSummary::getTotalPrice)
+                .containsExactlyElementsOf(IntStream.rangeClosed(1, 200).boxed().toList());
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testParallelFulfilmentNeedsPartialBuys() {
+        //Test: workers that could sell the same stock twice are refused up front
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess);
+        Assertions.assertThatThrownBy(() -> new OrderPipeline(barnesAndNoble, 16, 8, 1, 2))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSingleOrderIsNotHeldForABatch() throws Exception {
+        //Test: a lone order is fulfilled without waiting for the batch to fill up
+        this.pipeline = new OrderPipeline(new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess), 16, 1_000, 1, 1);
+        Collector collector = new Collector();
+        this.pipeline.subscribe(collector);
+
+        this.pipeline.submit(Map.of("111-111", 3));
+        Assertions.assertThat(collector.first.get(10, TimeUnit.SECONDS).getTotalPrice()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testBatchLookupsRunSideBySide() throws Exception {
+        //Test: the ISBNs of one batch are looked up at the same time, not one after another
+        CountDownLatch allLookingUp = new CountDownLatch(3);
+        BookDatabase waitsForTheOthers = ISBN -> {
+            allLookingUp.countDown();
+            try {
+                return allLookingUp.await(2, TimeUnit.SECONDS) ? new Book(ISBN, 10, 1_000) : null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        };
+        this.pipeline = new OrderPipeline(new BarnesAndNoble(waitsForTheOthers, this.mockBuyBookProcess), 16, 8, 1, 1);
+        Collector collector = new Collector();
+        this.pipeline.subscribe(collector);
+
+        this.pipeline.submit(Map.of("111-111", 1, "222-222", 1, "333-333", 1));
+        PurchaseSummary summary = collector.first.get(10, TimeUnit.SECONDS);
+        Assertions.assertThat(summary.getUnknown()).isEmpty();
+        Assertions.assertThat(summary.getTotalPrice()).isEqualTo(30);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testSlowFulfilmentPushesBack() throws Exception {
+        //Test: when buyBook stalls the pipeline stops taking orders instead of buffering them all
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(this.mockBuyBookProcess).buyBook(Mockito.any(), Mockito.anyInt());
+        this.pipeline = new OrderPipeline(new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess), 4, 2, 1, 1);
+        Collector collector = new Collector();
+        this.pipeline.subscribe(collector);
+
+        int accepted = 0;
+        while (accepted < 1_000 && this.pipeline.offer(Map.of("111-111", 1), Duration.ofMillis(200)))
+            accepted++;
+        Assertions.assertThat(accepted).isLessThan(100);
+
+        release.countDown();
+        this.pipeline.close();
+        collector.done.get(10, TimeUnit.SECONDS);
+        Assertions.assertThat(collector.summaries).hasSize(accepted);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testFailureReachesSubscriber() {
+        //Test: an exception while fulfilling closes the stream with that error
+        Mockito.doThrow(new IllegalStateException("warehouse down")).when(this.mockBuyBookProcess).buyBook(Mockito.any(), Mockito.anyInt());
+        this.pipeline = new OrderPipeline(new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess), 16, 8, 1, 1);
+        Collector collector = new Collector();
+        this.pipeline.subscribe(collector);
+
+        this.pipeline.submit(Map.of("111-111", 1));
+        Assertions.assertThatThrownBy(() -> collector.done.get(10, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+    }
+
+    private static class Collector implements Flow.Subscriber<PurchaseSummary> {
+        final List<PurchaseSummary> summaries = new CopyOnWriteArrayList<>();
+        final CompletableFuture<PurchaseSummary> first = new CompletableFuture<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(PurchaseSummary summary) {
+            summaries.add(summary);
+            first.complete(summary);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.Barnes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// An InventoryShardServer running in its own JVM on this machine.
+class ShardProcess implements AutoCloseable {
+
+    private final Process process;
+    private final InetSocketAddress address;
+
+    ShardProcess() throws IOException {
+        this.process = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx64m", "-XX:TieredStopAtLevel=1", "-cp", System.getProperty("java.class.path"),
+                InventoryShardServer.class.getName())
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        String line = new BufferedReader(new InputStreamReader(process.getInputStream())).readLine();
+        if (line == null || !line.startsWith("port "))
+            throw new IOException("Shard process did not start: " + line);
+        this.address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(line.substring(5)));
+    }
+
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    // closing stdin tells the shard to stop
+    @Override
+    public void close() throws Exception {
+        process.getOutputStream().close();
+        if (!process.waitFor(5, TimeUnit.SECONDS))
+            process.destroyForcibly();
+    }
+}
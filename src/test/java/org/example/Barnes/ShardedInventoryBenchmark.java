@@ -0,0 +1,68 @@
+package org.example.Barnes;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout throughput against 1, 2 and 4 shard processes with concurrent clients.
+ * Run with: java -cp target/classes:target/test-classes org.example.Barnes.ShardedInventoryBenchmark
+ */
+public class ShardedInventoryBenchmark {
+
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int CLIENTS = 8;
+    private static final int ORDERS_PER_CLIENT = 2_000;
+    private static final int LINES_PER_ORDER = 4;
+
+    public static void main(String[] args) throws Exception {
+        List<ShardProcess> processes = new ArrayList<>();
+        try {
+            for (int shards : new int[] {1, 2, 4}) {
+                while (processes.size() < shards)
+                    processes.add(new ShardProcess());
+                List<InetSocketAddress> addresses = new ArrayList<>();
+                for (int i = 0; i < shards; i++)
+                    addresses.add(processes.get(i).getAddress());
+
+                try (ShardedInventory inventory = new ShardedInventory(addresses)) {
+                    List<Book> books = new ArrayList<>();
+                    for (int i = 0; i < CATALOG_SIZE; i++)
+                        books.add(new Book("isbn-" + i, 10, Integer.MAX_VALUE));
+                    inventory.put(books);
+                    BarnesAndNoble barnesAndNoble = new BarnesAndNoble(inventory, inventory);
+
+                    for (int round = 0; round < 3; round++) {
+                        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+                        long start = System.nanoTime();
+                        for (int c = 0; c < CLIENTS; c++) {
+                            clients.execute(() -> {
+                                ThreadLocalRandom random = ThreadLocalRandom.current();
+                                for (int i = 0; i < ORDERS_PER_CLIENT; i++) {
+                                    Map<String, Integer> order = new HashMap<>();
+                                    for (int j = 0; j < LINES_PER_ORDER; j++)
+                                        order.put("isbn-" + random.nextInt(CATALOG_SIZE), 1);
+                                    barnesAndNoble.getPriceForCart(order);
+                                }
+                            });
+                        }
+                        clients.shutdown();
+                        clients.awaitTermination(10, TimeUnit.MINUTES);
+                        long elapsed = System.nanoTime() - start;
+                        System.out.printf("%d shard(s), round %d: %,.0f orders/s%n",
+                                shards, round, CLIENTS * ORDERS_PER_CLIENT / (elapsed / 1e9));
+                    }
+                }
+            }
+        } finally {
+            for (ShardProcess process : processes)
+                process.close();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package org.example.Barnes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class ShardedInventoryTest {
+    private static final List<ShardProcess> processes = new ArrayList<>();
+
+    @BeforeAll
+    static void startShards() throws Exception {
+        for (int i = 0; i < 4; i++)
+            processes.add(new ShardProcess());
+    }
+
+    @AfterAll
+    static void stopShards() throws Exception {
+        for (ShardProcess process : processes)
+            process.close();
+    }
+
+    private static List<Book> books(String prefix, int count) {
+        List<Book> books = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            books.add(new Book(prefix + i, 10 + i % 7, 100));
+        return books;
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCheckoutAcrossShardProcesses() {
+        //Test: books spread over three processes and a checkout buys from the owning shards
+        List<InetSocketAddress> addresses = List.of(processes.get(0).getAddress(), processes.get(1).getAddress(), processes.get(2).getAddress());
+        try (ShardedInventory inventory = new ShardedInventory(addresses)) {
+            // the shard processes are shared between tests, so only count what this test adds
+            List<Integer> before = inventory.shardSizes();
+            inventory.put(books("checkout-", 300));
+            List<Integer> after = inventory.shardSizes();
+            for (int i = 0; i < 3; i++)
+                Assertions.assertThat(after.get(i) - before.get(i)).isBetween(50, 150);
+
+            BarnesAndNoble barnesAndNoble = new BarnesAndNoble(inventory, inventory);
+            PurchaseSummary summary = barnesAndNoble.getPriceForCart(Map.of("checkout-1", 2, "checkout-2", 150, "missing", 1));
+
+            Assertions.assertThat(summary.getTotalPrice()).isEqualTo(2 * 11 + 100 * 12);
+            Assertions.assertThat(summary.getUnknown()).containsEntry("missing", 1);
+            Assertions.assertThat(inventory.findByISBN("checkout-1").getQuantity()).isEqualTo(98);
+            Assertions.assertThat(inventory.findByISBN("checkout-2").getQuantity()).isZero();
+            Assertions.assertThat(inventory.findAllByISBN(List.of("checkout-5", "checkout-6", "missing"))).containsOnlyKeys("checkout-5", "checkout-6");
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testAddingShardMovesOnlyItsShare() {
+        //Test: a fourth, empty shard takes over roughly a quarter of the books and nothing is lost
+        List<InetSocketAddress> addresses = List.of(processes.get(0).getAddress(), processes.get(1).getAddress(), processes.get(2).getAddress());
+        try (ShardedInventory inventory = new ShardedInventory(addresses)) {
+            inventory.put(books("rebalance-", 1_000));
+            inventory.buyBook(new Book("rebalance-7", 0, 0), 40);
+            int before = inventory.shardSizes().stream().mapToInt(Integer::intValue).sum();
+
+            int moved = inventory.addShard(processes.get(3).getAddress());
+
+            Assertions.assertThat(moved).isBetween(before / 4 - 100, before / 4 + 100);
+            Assertions.assertThat(inventory.shardSizes()).hasSize(4).last().isEqualTo(moved);
+            Assertions.assertThat(inventory.shardSizes().stream().mapToInt(Integer::intValue).sum()).isEqualTo(before);
+            List<String> isbns = new ArrayList<>();
+            for (Book book : books("rebalance-", 1_000))
+                isbns.add(book.getISBN());
+            Assertions.assertThat(inventory.findAllByISBN(isbns)).hasSize(1_000);
+            Assertions.assertThat(inventory.findByISBN("rebalance-7").getQuantity()).isEqualTo(60);
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testOversubscribedBookIsChargedOnlyForWhatWasBought() throws Exception {
+        //Test: checkouts racing for one book through separate routers are charged for exactly the stock the shard had
+        List<InetSocketAddress> addresses = List.of(processes.get(0).getAddress(), processes.get(1).getAddress(), processes.get(2).getAddress());
+        try (ShardedInventory setup = new ShardedInventory(addresses)) {
+            setup.put(List.of(new Book("contended", 10, 100)));
+        }
+        int buyers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        List<ShardedInventory> routers = new ArrayList<>();
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<PurchaseSummary>> summaries = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                ShardedInventory router = new ShardedInventory(addresses);
+                routers.add(router);
+                BarnesAndNoble barnesAndNoble = new BarnesAndNoble(router, router);
+                summaries.add(executor.submit(() -> {
+                    start.await();
+                    return barnesAndNoble.getPriceForCart(Map.of("contended", 25));
+                }));
+            }
+            start.countDown();
+
+            int charged = 0;
+            int unavailable = 0;
+            for (Future<PurchaseSummary> summary : summaries) {
+                charged += summary.get(30, TimeUnit.SECONDS).getTotalPrice();
+                unavailable += summary.get().getUnavailable().values().stream().mapToInt(Integer::intValue).sum();
+            }
+            Assertions.assertThat(charged).isEqualTo(100 * 10);
+            Assertions.assertThat(unavailable).isEqualTo(buyers * 25 - 100);
+            Assertions.assertThat(routers.get(0).findByISBN("contended").getQuantity()).isZero();
+        } finally {
+            executor.shutdownNow();
+            for (ShardedInventory router : routers)
+                router.close();
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testOtherRoutersFollowAnAddedShard() throws Exception {
+        //Test: a router that did not add the shard is sent the new ring and still finds and sells the moved books
+        try (ShardProcess first = new ShardProcess(); ShardProcess second = new ShardProcess(); ShardProcess third = new ShardProcess();
+             ShardedInventory adding = new ShardedInventory(List.of(first.getAddress(), second.getAddress()));
+             ShardedInventory other = new ShardedInventory(List.of(first.getAddress(), second.getAddress()))) {
+            adding.put(books("follow-", 200));
+            Assertions.assertThat(other.findByISBN("follow-0")).isNotNull();
+
+            int moved = adding.addShard(third.getAddress());
+
+            List<String> isbns = new ArrayList<>();
+            for (Book book : books("follow-", 200))
+                isbns.add(book.getISBN());
+            Assertions.assertThat(moved).isPositive();
+            Assertions.assertThat(other.findAllByISBN(isbns)).hasSize(200);
+            Assertions.assertThat(other.shardSizes()).hasSize(3).last().isEqualTo(moved);
+            for (String ISBN : isbns)
+                Assertions.assertThat(other.buyUpTo(new Book(ISBN, 0, 0), 150)).isEqualTo(100);
+            Assertions.assertThat(adding.findAllByISBN(isbns).values()).allMatch(book -> book.getQuantity() == 0);
+        }
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testNothingBoughtDuringAMoveIsLost() throws Exception {
+        //Test: purchases racing a shard being added are all taken off the stock that moves
+        try (ShardProcess first = new ShardProcess(); ShardProcess second = new ShardProcess();
+             ShardedInventory adding = new ShardedInventory(List.of(first.getAddress()));
+             ShardedInventory buying = new ShardedInventory(List.of(first.getAddress()))) {
+            adding.put(books("race-", 100));
+            List<String> isbns = new ArrayList<>();
+            for (Book book : books("race-", 100))
+                isbns.add(book.getISBN());
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<Integer> bought = executor.submit(() -> {
+                    int total = 0;
+                    for (int round = 0; round < 5; round++) {
+                        for (String ISBN : isbns)
+                            total += buying.buyUpTo(new Book(ISBN, 0, 0), 1);
+                    }
+                    return total;
+                });
+                adding.addShard(second.getAddress());
+                int sold = bought.get(30, TimeUnit.SECONDS);
+
+                int left = adding.findAllByISBN(isbns).values().stream().mapToInt(Book::getQuantity).sum();
+                Assertions.assertThat(sold + left).isEqualTo(100 * 100);
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
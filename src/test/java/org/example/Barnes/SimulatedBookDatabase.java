@@ -0,0 +1,36 @@
+package org.example.Barnes;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory catalog with a two-mode latency distribution: most lookups take
+ * the fast time, a configurable share takes the slow time, like a backend
+ * with an occasional GC pause or cold cache.
+ */
+class SimulatedBookDatabase implements BookDatabase {
+
+    private final Map<String, Book> books;
+    private final long fastNanos;
+    private final long slowNanos;
+    private final double slowShare;
+
+    SimulatedBookDatabase(Map<String, Book> books, long fastMicros, long slowMicros, double slowShare) {
+        this.books = books;
+        this.fastNanos = fastMicros * 1_000;
+        this.slowNanos = slowMicros * 1_000;
+        this.slowShare = slowShare;
+    }
+
+    @Override
+    public Book findByISBN(String ISBN) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long latency = random.nextDouble() < slowShare ? slowNanos : fastNanos;
+        // a little jitter so the percentiles are not all the same value
+        long end = System.nanoTime() + latency + random.nextLong(latency / 10 + 1);
+        for (long left = latency; left > 0; left = end - System.nanoTime())
+            LockSupport.parkNanos(left);
+        return books.get(ISBN);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.Barnes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+class SingleFlightCheckoutTest {
+    private BookDatabase mockBookDatabase;
+    private BuyBookProcess mockBuyBookProcess;
+    private final AtomicLong now = new AtomicLong();
+    private SingleFlightCheckout checkout;
+
+    @BeforeEach
+    void setUp() {
+        this.mockBookDatabase = Mockito.mock(BookDatabase.class);
+        this.mockBuyBookProcess = Mockito.mock(BuyBookProcess.class);
+        Mockito.when(this.mockBookDatabase.findByISBN("111-111")).thenReturn(new Book("111-111", 10, 100));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(this.mockBookDatabase, this.mockBuyBookProcess);
+        this.checkout = new SingleFlightCheckout(barnesAndNoble, 2, Duration.ofMinutes(1), now::get);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRetryGetsStoredResult() {
+        //Test: a late retry returns the same summary without buying again
+        PurchaseSummary first = this.checkout.checkout("key-1", Map.of("111-111", 2));
+        PurchaseSummary retry = this.checkout.checkout("key-1", Map.of("111-111", 2));
+
+        Assertions.assertThat(retry).isSameAs(first);
+        Assertions.assertThat(retry.getTotalPrice()).isEqualTo(20);
+        ((BuyBookProcess)Mockito.verify(this.mockBuyBookProcess, Mockito.times(1))).buyBook(Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testConcurrentDuplicatesShareOneCheckout() throws Exception {
+        //Test: copies that arrive while the first is running wait for it
+        CountDownLatch inside = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            inside.countDown();
+            release.await();
+            return null;
+        }).when(this.mockBuyBookProcess).buyBook(Mockito.any(), Mockito.anyInt());
+
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        List<Future<PurchaseSummary>> results = new ArrayList<>();
+        results.add(pool.submit(() -> this.checkout.checkout("key-1", Map.of("111-111", 1))));
+        inside.await();
+        for (int i = 0; i < 4; i++)
+            results.add(pool.submit(() -> this.checkout.checkout("key-1", Map.of("111-111", 1))));
+        Thread.sleep(100);
+        release.countDown();
+
+        PurchaseSummary first = results.get(0).get();
+        for (Future<PurchaseSummary> result : results)
+            Assertions.assertThat(result.get()).isSameAs(first);
+        pool.shutdown();
+        ((BookDatabase)Mockito.verify(this.mockBookDatabase, Mockito.times(1))).findByISBN("111-111");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testRetentionIsBoundedAndExpires() {
+        //Test: results are dropped after the retention time or when too many are kept
+        PurchaseSummary first = this.checkout.checkout("key-1", Map.of("111-111", 1));
+        this.checkout.checkout("key-2", Map.of("111-111", 1));
+        this.checkout.checkout("key-3", Map.of("111-111", 1));
+        Assertions.assertThat(this.checkout.retainedCount()).isEqualTo(2);
+        Assertions.assertThat(this.checkout.checkout("key-1", Map.of("111-111", 1))).isNotSameAs(first);
+
+        this.now.addAndGet(Duration.ofMinutes(2).toNanos());
+        Assertions.assertThat(this.checkout.retainedCount()).isEqualTo(2);
+        this.checkout.checkout("key-4", Map.of("111-111", 1));
+        Assertions.assertThat(this.checkout.retainedCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testKeyReusedForOtherOrderAndFailures() {
+        //Test: key reuse with another order is rejected and failures are not kept
+        this.checkout.checkout("key-1", Map.of("111-111", 1));
+        Assertions.assertThatThrownBy(() -> this.checkout.checkout("key-1", Map.of("111-111", 5)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        Mockito.doThrow(new IllegalStateException("backend down")).when(this.mockBuyBookProcess).buyBook(Mockito.any(), Mockito.eq(7));
+        Assertions.assertThatThrownBy(() -> this.checkout.checkout("key-2", Map.of("111-111", 7)))
+                .isInstanceOf(IllegalStateException.class);
+        Assertions.assertThat(this.checkout.retainedCount()).isEqualTo(1);
+        Assertions.assertThat(this.checkout.checkout("key-3", null)).isNull();
+    }
+}
@@ -0,0 +1,132 @@
+package org.example.Barnes;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+class SnapshotBookDatabaseTest {
+
+    @Test
+    @DisplayName("specification-based")
+    void testOldVersionIsStable() {
+        //Test: a version taken before a repricing keeps the old prices
+        SnapshotBookDatabase database = new SnapshotBookDatabase(List.of(new Book("111-111", 10, 5), new Book("222-222", 20, 5)));
+        SnapshotBookDatabase.Catalog before = database.current();
+
+        SnapshotBookDatabase.Catalog after = database.update(Map.of("111-111", 12), Map.of("222-222", 0));
+
+        Assertions.assertThat(before.findByISBN("111-111").getPrice()).isEqualTo(10);
+        Assertions.assertThat(after.findByISBN("111-111").getPrice()).isEqualTo(12);
+        Assertions.assertThat(after.findByISBN("222-222").getQuantity()).isZero();
+        Assertions.assertThat(after.getVersion()).isEqualTo(before.getVersion() + 1);
+        Assertions.assertThat(database.findByISBN("111-111").getPrice()).isEqualTo(12);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testPublishAndRemove() {
+        //Test: books can be added, replaced and removed
+        SnapshotBookDatabase database = new SnapshotBookDatabase(List.of(new Book("111-111", 10, 5)));
+
+        database.publish(List.of(new Book("111-111", 11, 5), new Book("333-333", 30, 1)));
+        Assertions.assertThat(database.current().size()).isEqualTo(2);
+        Assertions.assertThat(database.findByISBN("111-111").getPrice()).isEqualTo(11);
+
+        database.remove(List.of("111-111"));
+        Assertions.assertThat(database.findByISBN("111-111")).isNull();
+        Assertions.assertThat(database.current().getVersion()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testCheckoutNeverMixesVersions() throws Exception {
+        //Test: each order is priced from one version while repricing runs
+        List<Book> books = new ArrayList<>();
+        Map<String, Integer> order = new HashMap<>();
+        for (int i = 0; i < 50; i++) {
+            books.add(new Book("isbn-" + i, 1, 1_000_000));
+            order.put("isbn-" + i, 1);
+        }
+        SnapshotBookDatabase database = new SnapshotBookDatabase(books);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(database, (book, amount) -> { });
+        AtomicBoolean repricing = new AtomicBoolean(true);
+        AtomicReference<Integer> mixedTotal = new AtomicReference<>();
+
+        Thread repricer = new Thread(() -> {
+            for (int price = 2; price < 500; price++) {
+                Map<String, Integer> prices = new HashMap<>();
+                for (String isbn : order.keySet())
+                    prices.put(isbn, price);
+                database.update(prices, Map.of());
+            }
+            repricing.set(false);
+        });
+        repricer.start();
+        while (repricing.get()) {
+            int total = barnesAndNoble.getPriceForCart(order).getTotalPrice();
+            // all 50 books always share one price, so a consistent total is a multiple of 50
+            if (total % 50 != 0)
+                mixedTotal.set(total);
+        }
+        repricer.join();
+
+        Assertions.assertThat(mixedTotal.get()).isNull();
+        Assertions.assertThat(barnesAndNoble.getPriceForCart(order).getTotalPrice()).isEqualTo(50 * 499);
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testWrappedCatalogStillReadsOneVersionPerOrder() {
+        //Test: behind a Bloom filter and hedging, a repricing during an order does not reach that order
+        SnapshotBookDatabase database = new SnapshotBookDatabase(List.of(new Book("111-111", 10, 5), new Book("222-222", 20, 5)));
+        ExecutorService executor = Executors.newCachedThreadPool();
+        BookDatabase wrapped = new BloomFilteredBookDatabase(
+                new HedgedBookDatabase(database, executor, 0.9, Duration.ofSeconds(1)), List.of("111-111", "222-222"), 0.01);
+        AtomicBoolean repriced = new AtomicBoolean();
+        BuyBookProcess repricingProcess = (book, amount) -> {
+            if (repriced.compareAndSet(false, true))
+                database.update(Map.of("111-111", 99, "222-222", 99), Map.of());
+        };
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(wrapped, repricingProcess);
+
+        Map<String, Integer> order = new LinkedHashMap<>();
+        order.put("111-111", 1);
+        order.put("222-222", 1);
+        PurchaseSummary summary = barnesAndNoble.getPriceForCart(order);
+
+        Assertions.assertThat(summary.getTotalPrice()).isEqualTo(30);
+        Assertions.assertThat(((VersionedBookDatabase) wrapped).current().findByISBN("222-222").getPrice()).isEqualTo(99);
+        Assertions.assertThat(new HedgedBookDatabase(isbn -> null, executor, 0.9, Duration.ofSeconds(1)).current()).isNull();
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testPinnedBookTakesThePriceOfTheOrdersVersion() {
+        //Test: after a repricing, a pinned book still sells from its stock but at the new version's price
+        SnapshotBookDatabase database = new SnapshotBookDatabase(List.of(new Book("111-111", 10, 5)));
+        HotBookCache hotBooks = new HotBookCache(new HeavyHitters(4), database);
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(database, (book, amount) -> { }, hotBooks);
+        barnesAndNoble.getPriceForCart(Map.of("111-111", 1));
+        hotBooks.refresh();
+
+        database.update(Map.of("111-111", 15), Map.of());
+        PurchaseSummary single = barnesAndNoble.getPriceForCart(Map.of("111-111", 2));
+        PurchaseSummary batch = barnesAndNoble.getPriceForCarts(List.of(Map.of("111-111", 2))).get(0);
+
+        Assertions.assertThat(single.getTotalPrice()).isEqualTo(30);
+        Assertions.assertThat(batch.getTotalPrice()).isEqualTo(30);
+        Assertions.assertThat(hotBooks.get("111-111").getStock().available()).isEqualTo(1);
+    }
+}
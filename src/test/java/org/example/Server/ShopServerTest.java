@@ -0,0 +1,105 @@
+package org.example.Server;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Item;
+import org.example.Barnes.BarnesAndNoble;
+import org.example.Barnes.Book;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class ShopServerTest {
+
+    private Amazon amazon;
+    private ShopServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        amazon = Mockito.mock(Amazon.class);
+        Map<String, Book> catalog = Map.of("111-111", new Book("111-111", 20, 3));
+        BarnesAndNoble barnesAndNoble = new BarnesAndNoble(catalog::get, (book, amount) -> { });
+
+        server = new ShopServer(amazon, barnesAndNoble, 0, 8);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testQuote() throws Exception {
+        //Test: quote returns Amazon.calculate()
+        when(amazon.calculate()).thenReturn(42.5);
+
+        HttpResponse<String> response = send("GET", "/cart/quote");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("42.5");
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testAddToCart() throws Exception {
+        //Test: add-to-cart builds the item from the query string
+        HttpResponse<String> response = send("POST", "/cart/items?type=ELECTRONIC&name=USB%20Cable&quantity=2&price=3.5");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        verify(amazon).addToCart(argThat((Item item) -> item.getName().equals("USB Cable") && item.getQuantity() == 2));
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testWarmsUpBeforeServing() throws Exception {
+        //Test: a server started with warm-up iterations runs them and then serves requests
+        when(amazon.calculate()).thenReturn(1.0);
+        ShopServer warmed = new ShopServer(amazon, new BarnesAndNoble(Map.<String, Book>of()::get, (book, amount) -> { }), 0, 8);
+        try {
+            warmed.start(10);
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + warmed.getPort() + "/cart/quote")).GET().build();
+            assertThat(client.send(request, HttpResponse.BodyHandlers.ofString()).body()).isEqualTo("1.0");
+        } finally {
+            warmed.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("specification-based")
+    void testCheckout() throws Exception {
+        //Test: checkout prices the order and reports missing stock
+        HttpResponse<String> response = send("POST", "/checkout?111-111=5");
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("total=60\nunavailable=2");
+    }
+
+    @Test
+    @DisplayName("structural-based")
+    void testBadRequests() throws Exception {
+        //Test: wrong method and malformed parameters
+        assertThat(send("POST", "/cart/quote").statusCode()).isEqualTo(405);
+        assertThat(send("POST", "/cart/items?type=FOOD&name=x&quantity=1&price=1").statusCode()).isEqualTo(400);
+        verifyNoInteractions(amazon);
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.Server;
+
+import org.example.Amazon.Amazon;
+import org.example.Amazon.Cost.DeliveryPrice;
+import org.example.Amazon.Cost.ExtraCostForElectronics;
+import org.example.Amazon.Cost.ItemType;
+import org.example.Amazon.Cost.RegularCost;
+import org.example.Amazon.Database;
+import org.example.Amazon.Item;
+import org.example.Amazon.PersistenceProvider;
+import org.example.Amazon.ShoppingCartAdaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Time to first quote of a fresh JVM: plain, with an AppCDS archive built from
+ * a Warmup training run, and with the archive plus an explicit warm-up before
+ * the first quote. Each case is a new child process, measured from JVM start.
+ * AppCDS only archives classes loaded from jars, so class directories on the
+ * class path are packed into temporary jars first.
+ * Run with: java -cp target/classes:target/test-classes:$HSQLDB_JAR org.example.Server.StartupBenchmark
+ */
+public class StartupBenchmark {
+
+    private static final int RUNS = 5;
+    private static String jarClassPath;
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("child")) {
+            firstQuote(args.length > 1 && args[1].equals("warm"));
+            return;
+        }
+
+        Path work = Files.createTempDirectory("appcds");
+        List<String> classPath = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            Path path = Path.of(entry);
+            if (Files.isDirectory(path)) {
+                Path jar = work.resolve(classPath.size() + ".jar");
+                pack(path, jar);
+                path = jar;
+            }
+            classPath.add(path.toString());
+        }
+        jarClassPath = String.join(File.pathSeparator, classPath);
+
+        Path archive = work.resolve("app.jsa");
+        launch(List.of("-XX:ArchiveClassesAtExit=" + archive), Warmup.class.getName(), "2000");
+
+        measure("plain JVM        ", List.of(), "cold");
+        measure("AppCDS           ", List.of("-XX:SharedArchiveFile=" + archive), "cold");
+        measure("AppCDS + warm-up ", List.of("-XX:SharedArchiveFile=" + archive), "warm");
+    }
+
+    // prints milliseconds from JVM start to the first quote, and how long the quote itself took
+    private static void firstQuote(boolean warm) {
+        if (warm)
+            Warmup.run(2_000);
+        long start = System.nanoTime();
+        Database database = new Database(PersistenceProvider.inMemory("startup"));
+        Amazon amazon = new Amazon(new ShoppingCartAdaptor(database),
+                List.of(new RegularCost(), new DeliveryPrice(), new ExtraCostForElectronics()));
+        amazon.addToCart(new Item(ItemType.ELECTRONIC, "Laptop", 1, 999.0));
+        amazon.calculate();
+        long quote = System.nanoTime() - start;
+        long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.out.println(sinceStart + " " + quote / 1_000);
+    }
+
+    private static void measure(String name, List<String> options, String mode) throws Exception {
+        long[] sinceStart = new long[RUNS];
+        long[] quote = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            String[] result = launch(options, StartupBenchmark.class.getName(), "child", mode).trim().split(" ");
+            sinceStart[i] = Long.parseLong(result[0]);
+            quote[i] = Long.parseLong(result[1]);
+        }
+        Arrays.sort(sinceStart);
+        Arrays.sort(quote);
+        System.out.printf("%s first quote at %4d ms after JVM start, first quote itself %,6d us (medians)%n",
+                name, sinceStart[RUNS / 2], quote[RUNS / 2]);
+    }
+
+    private static String launch(List<String> options, String... mainAndArgs) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(options);
+        command.add("-cp");
+        command.add(jarClassPath);
+        command.addAll(List.of(mainAndArgs));
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        String output = new String(process.getInputStream().readAllBytes());
+        if (process.waitFor() != 0)
+            throw new IllegalStateException(String.join(" ", command) + " failed");
+        String[] lines = output.split(System.lineSeparator());
+        return lines[lines.length - 1];
+    }
+
+    private static void pack(Path directory, Path jar) throws IOException {
+        try (JarOutputStream out = new JarOutputStream(Files.newOutputStream(jar));
+             Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                out.putNextEntry(new JarEntry(directory.relativize(file).toString().replace(File.separatorChar, '/')));
+                Files.copy(file, out);
+                out.closeEntry();
+            }
+        }
+    }
+}